@@ -0,0 +1,108 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//operator tool for the comments table once src/main/resources/db/comments-partitioning.sql has partitioned it.
+//Not part of the application, run it as a source file with the MySQL driver on the class path:
+//  java --class-path mysql-connector-j.jar scripts/CommentPartitionTool.java rebalance <partitions> | report | check
+//connection comes from BLOG_DB_URL, BLOG_DB_USERNAME and BLOG_DB_PASSWORD
+public class CommentPartitionTool {
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length == 0){
+            usage();
+            return;
+        }
+
+        String url = System.getenv().getOrDefault("BLOG_DB_URL", "jdbc:mysql://localhost:3306/myblog");
+        String username = System.getenv().getOrDefault("BLOG_DB_USERNAME", "root");
+        String password = System.getenv().getOrDefault("BLOG_DB_PASSWORD", "");
+
+        long orphans = 0;
+        try (Connection connection = DriverManager.getConnection(url, username, password)){
+            switch (args[0]){
+                case "rebalance" -> rebalance(connection, partitions(args));
+                case "report" -> report(connection);
+                case "check" -> orphans = orphans(connection);
+                default -> usage();
+            }
+        }
+        if (orphans > 0){
+            System.exit(1);
+        }
+    }
+
+    //changes the partition count; MySQL rebuilds the table and redistributes the rows by the new hash
+    private static void rebalance(Connection connection, int partitions) throws SQLException {
+        int current = partitionCount(connection);
+        if (current == 0){
+            System.out.println("comments is not partitioned yet, run db/comments-partitioning.sql first");
+            return;
+        }
+        try (Statement statement = connection.createStatement()){
+            if (partitions > current){
+                statement.execute("ALTER TABLE comments ADD PARTITION PARTITIONS " + (partitions - current));
+            } else if (partitions < current){
+                statement.execute("ALTER TABLE comments COALESCE PARTITION " + (current - partitions));
+            }
+            //refresh the row estimates so the report and the optimizer see the new layout
+            statement.execute("ANALYZE TABLE comments");
+        }
+        report(connection);
+    }
+
+    private static void report(Connection connection) throws SQLException {
+        String sql = "SELECT partition_name, table_rows, data_length FROM information_schema.partitions " +
+                "WHERE table_schema = DATABASE() AND table_name = 'comments' ORDER BY partition_ordinal_position";
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)){
+            long total = 0;
+            long largest = 0;
+            int count = 0;
+            while (resultSet.next()){
+                long rows = resultSet.getLong("table_rows");
+                System.out.printf("%-12s %12d rows %14d bytes%n", resultSet.getString("partition_name"), rows, resultSet.getLong("data_length"));
+                total += rows;
+                largest = Math.max(largest, rows);
+                count++;
+            }
+            if (count > 1 && total > 0){
+                //skew above 1.0 means a few busy posts are crowding one partition
+                System.out.printf("partitions: %d, rows: %d, skew: %.2f%n", count, total, largest / ((double) total / count));
+            }
+        }
+    }
+
+    //the post_id foreign key is gone, so comments of a deleted post would go unnoticed; this is the check it did
+    private static long orphans(Connection connection) throws SQLException {
+        String sql = "SELECT count(*) FROM comments c LEFT JOIN posts p ON p.id = c.post_id WHERE p.id IS NULL";
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)){
+            resultSet.next();
+            long orphans = resultSet.getLong(1);
+            System.out.printf("comments without a post: %d%n", orphans);
+            return orphans;
+        }
+    }
+
+    private static int partitionCount(Connection connection) throws SQLException {
+        String sql = "SELECT count(*) FROM information_schema.partitions " +
+                "WHERE table_schema = DATABASE() AND table_name = 'comments' AND partition_name IS NOT NULL";
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)){
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static int partitions(String[] args){
+        int partitions = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        if (partitions < 1 || partitions > 1024){
+            throw new IllegalArgumentException("partitions must be between 1 and 1024");
+        }
+        return partitions;
+    }
+
+    private static void usage(){
+        System.out.println("usage: CommentPartitionTool rebalance <partitions> | report | check");
+    }
+}
@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# Compares cold start time, resident memory and per-request latency of the JVM jar and the native image.
+# Needs a reachable MySQL (see application-prod.properties) and, for the native run, a GraalVM build:
+#   ./mvnw -DskipTests package                       -> target/springboot-blog-rest-api-0.0.1-SNAPSHOT.jar
+#   ./mvnw -Pnative -DskipTests native:compile       -> target/springboot-blog-rest-api
+# Usage: [PROFILES=dev] [REQUESTS=200] scripts/startup-benchmark.sh [runs]
+# PROFILES picks the Spring profiles, e.g. compare PROFILES=dev (docs, DEBUG logging) with the default prod setup
+set -euo pipefail
+
+RUNS=${1:-5}
+REQUESTS=${REQUESTS:-200}
+PORT=${PORT:-8080}
+JAR=target/springboot-blog-rest-api-0.0.1-SNAPSHOT.jar
+NATIVE=target/springboot-blog-rest-api
+
+# starts the command, waits until the port answers, prints "<millis> <rss kB> <mean request ms>" and stops it
+measure() {
+  local start end pid rss urls=()
+  start=$(date +%s%N)
+  "$@" --server.port="$PORT" > /dev/null 2>&1 &
+  pid=$!
+  until curl -s -o /dev/null "http://localhost:$PORT/api/posts/v1?pageSize=1"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "process exited before it was ready" >&2
+      return 1
+    fi
+    sleep 0.05
+  done
+  end=$(date +%s%N)
+  rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+  # one curl reuses the connection, so this is the latency of the requests right after start-up
+  for _ in $(seq "$REQUESTS"); do urls+=("http://localhost:$PORT/api/posts/v1?pageSize=1"); done
+  echo "$(( (end - start) / 1000000 )) $rss $(curl -s -o /dev/null -w '%{time_total}\n' "${urls[@]}" | \
+    awk '{ total += $1 } END { printf "%.3f", total / NR * 1000 }')"
+  kill "$pid"
+  wait "$pid" 2> /dev/null || true
+}
+
+run() {
+  local label=$1
+  shift
+  local total_ms=0 total_rss=0 total_request=0 result ms rss request
+  for _ in $(seq "$RUNS"); do
+    result=$(measure "$@")
+    read -r ms rss request <<< "$result"
+    total_ms=$(( total_ms + ms ))
+    total_rss=$(( total_rss + rss ))
+    total_request=$(awk -v a="$total_request" -v b="$request" 'BEGIN { printf "%.3f", a + b }')
+  done
+  printf '%-8s ready in %6d ms   rss %7d kB   request %7.3f ms   (mean of %d runs)\n' "$label" $(( total_ms / RUNS )) \
+    $(( total_rss / RUNS )) "$(awk -v t="$total_request" -v n="$RUNS" 'BEGIN { printf "%.3f", t / n }')" "$RUNS"
+}
+
+export SPRING_PROFILES_ACTIVE=${PROFILES:-native,prod}
+# prod refuses to start without a node id, the benchmark instance is the only one
+export APP_NODE_ID=${APP_NODE_ID:-0}
+
+[ -f "$JAR" ] && run jvm java -jar "$JAR"
+[ -x "$NATIVE" ] && run native "$NATIVE"
@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# Compares time-to-first-request and time-to-peak of the JVM jar without and with the startup warm-up.
+# Needs a reachable MySQL with some posts (see application-prod.properties) and the jar:
+#   ./mvnw -DskipTests package                       -> target/springboot-blog-rest-api-0.0.1-SNAPSHOT.jar
+# Usage: [WARMUP=200] [REQUESTS=3000] scripts/warmup-benchmark.sh
+# time-to-first-request: process start until the first answered request, the warm-up runs before the port opens.
+# time-to-peak: process start until a window of 100 requests averages within 10% of the fastest window
+set -euo pipefail
+
+WARMUP=${WARMUP:-200}
+REQUESTS=${REQUESTS:-3000}
+WINDOW=100
+PORT=${PORT:-8080}
+JAR=target/springboot-blog-rest-api-0.0.1-SNAPSHOT.jar
+URL="http://localhost:$PORT/api/posts/v1?pageSize=10"
+
+# starts the jar with the given warm-up iterations, prints "<first request ms> <peak ms> <first window ms> <best window ms>"
+measure() {
+  local iterations=$1 start first pid windows
+  start=$(date +%s%N)
+  java -jar "$JAR" --server.port="$PORT" --app.warmup.iterations="$iterations" > /dev/null 2>&1 &
+  pid=$!
+  until curl -s -o /dev/null "$URL"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "process exited before it was ready" >&2
+      return 1
+    fi
+    sleep 0.01
+  done
+  first=$(( ($(date +%s%N) - start) / 1000000 ))
+
+  # one curl per window reuses the connection, so the numbers are request latency and not process start-up
+  windows=$(for _ in $(seq $(( REQUESTS / WINDOW ))); do
+    local urls=()
+    for _ in $(seq "$WINDOW"); do urls+=("$URL"); done
+    curl -s -o /dev/null -w '%{time_total}\n' "${urls[@]}" | awk -v now="$(date +%s%N)" -v start="$start" \
+      '{ total += $1 } END { printf "%d %.3f\n", (now - start) / 1000000, total / NR * 1000 }'
+  done)
+  kill "$pid"
+  wait "$pid" 2> /dev/null || true
+
+  # each window line is "<ms since start when it began> <mean latency ms>"
+  echo "$windows" | awk -v first="$first" '
+    { at[NR] = $1; mean[NR] = $2; if (NR == 1 || $2 < best) best = $2 }
+    END {
+      for (i = 1; i <= NR; i++) if (mean[i] <= best * 1.1) { peak = at[i]; break }
+      printf "%d %d %.3f %.3f\n", first, peak, mean[1], best
+    }'
+}
+
+export SPRING_PROFILES_ACTIVE=${PROFILES:-prod}
+# prod refuses to start without a node id, the benchmark instance is the only one
+export APP_NODE_ID=${APP_NODE_ID:-0}
+
+for iterations in 0 "$WARMUP"; do
+  read -r first peak first_window best < <(measure "$iterations")
+  printf 'warm-up %4d: first request after %6d ms, peak after %6d ms, first %d requests %7.3f ms each, best %7.3f ms\n' \
+    "$iterations" "$first" "$peak" "$WINDOW" "$first_window" "$best"
+done
@@ -1,21 +1,32 @@
 package com.springboot.blog;
 
+import com.springboot.blog.entity.Post;
 import com.springboot.blog.entity.Role;
+import com.springboot.blog.entity.Tag;
+import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.repository.RoleRepository;
 import io.swagger.v3.oas.annotations.ExternalDocumentation;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Contact;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.info.License;
+import org.modelmapper.Converter;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 
 @SpringBootApplication
+@EnableScheduling
 @OpenAPIDefinition(
 		info = @Info(
 				title = "Spring-Boot Blog App REST API",
@@ -39,7 +50,15 @@ public class SpringbootBlogRestApiApplication implements CommandLineRunner {
 
 	@Bean
 	public ModelMapper modelMapper(){
-		return new ModelMapper();
+		ModelMapper modelMapper = new ModelMapper();
+		//tags are exposed by name; incoming names are resolved to Tag rows by the service
+		Converter<Set<Tag>, Set<String>> tagNames = context -> context.getSource() == null ? null
+				: context.getSource().stream().map(Tag::getName).collect(Collectors.toCollection(TreeSet::new));
+		modelMapper.typeMap(Post.class, PostDto.class)
+				.addMappings(mapper -> mapper.using(tagNames).map(Post::getTags, PostDto::setTags));
+		modelMapper.typeMap(PostDto.class, Post.class)
+				.addMappings(mapper -> mapper.skip(Post::setTags));
+		return modelMapper;
 	}
 
 	public static void main(String[] args) {
@@ -49,14 +68,21 @@ public class SpringbootBlogRestApiApplication implements CommandLineRunner {
 	@Autowired
 	private RoleRepository roleRepository;
 
+	@Value("${app.seed-roles:true}")
+	private boolean seedRoles;
+
+	//only inserts roles that are missing, so restarts do not write to the database
 	@Override
 	public void run(String... args) throws Exception {
-		Role adminRole = new Role();
-		adminRole.setName("ROLE_ADMIN");
-		roleRepository.save(adminRole);
-
-		Role userRole = new Role();
-		userRole.setName("ROLE_USER");
-		roleRepository.save(userRole);
+		if (!seedRoles){
+			return;
+		}
+		for (String roleName : new String[]{"ROLE_ADMIN", "ROLE_USER"}){
+			if (roleRepository.findByName(roleName).isEmpty()){
+				Role role = new Role();
+				role.setName(roleName);
+				roleRepository.save(role);
+			}
+		}
 	}
 }
@@ -0,0 +1,228 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+//keeps the in-process caches of all instances coherent: writers broadcast what they changed after commit, peers evict it.
+//Lost messages show up as sequence gaps and drop every local cache, and every cache entry also expires after
+//max-staleness, so a node never serves data older than that bound. A sequence counts as lost once a later one is more
+//than reorder-window ahead of it, or when a heartbeat announced it and it is still missing at the next heartbeat
+@Component
+public class CacheCoherenceManager {
+
+    public static final String POSTS = "posts";
+    public static final String CATEGORIES = "categories";
+    public static final String PRINCIPALS = "principals";
+    public static final String COMMENTS = "comments";
+    //tags of a post, sent only by writes that can change them
+    public static final String POST_TAGS = "post-tags";
+    //which posts a category lists, sent only by post creates, deletes and category moves
+    public static final String POST_LISTINGS = "post-listings";
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheCoherenceManager.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, List<Region>> regions = new ConcurrentHashMap<>();
+    private final Map<String, Peer> peers = new ConcurrentHashMap<>();
+    //sequences go out in the order they are assigned, and a heartbeat never announces one that is not sent yet
+    private final Object sendLock = new Object();
+    private final long maxStalenessMillis;
+    private final long heartbeatMillis;
+    private final int peerExpiryHeartbeats;
+    private final int reorderWindow;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong gaps = new AtomicLong();
+    private final AtomicLong fullInvalidations = new AtomicLong();
+
+    private InvalidationTransport transport;
+
+    public CacheCoherenceManager(InvalidationTransport transport,
+                                 @Value("${app.cache.coherence.max-staleness-millis:30000}") long maxStalenessMillis,
+                                 @Value("${app.cache.coherence.heartbeat-millis:5000}") long heartbeatMillis,
+                                 @Value("${app.cache.coherence.peer-expiry-heartbeats:3}") int peerExpiryHeartbeats,
+                                 @Value("${app.cache.coherence.reorder-window:64}") int reorderWindow) {
+        this.transport = transport;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.peerExpiryHeartbeats = peerExpiryHeartbeats;
+        this.reorderWindow = reorderWindow;
+    }
+
+    @PostConstruct
+    public void start(){
+        transport.start(this::receive);
+    }
+
+    @PreDestroy
+    public void stop(){
+        transport.stop();
+    }
+
+    //local caches register how to drop one key and everything, a region can have several caches
+    public void registerRegion(String region, Consumer<String> evictKey, Runnable evictAll){
+        regions.computeIfAbsent(region, name -> new CopyOnWriteArrayList<>()).add(new Region(evictKey, evictAll));
+    }
+
+    //upper bound for how long a cache may keep an entry without hearing about it
+    public long getMaxStalenessMillis(){
+        return maxStalenessMillis;
+    }
+
+    //tells the other nodes once the surrounding transaction commits; a null key drops the whole region
+    public void broadcast(String region, Object key){
+        TransactionUtils.afterCommit(() -> {
+            synchronized (sendLock){
+                transport.send(new InvalidationMessage(nodeId, sequence.incrementAndGet(), region, key == null ? null : key.toString()));
+            }
+            sent.incrementAndGet();
+        });
+    }
+
+    //lets peers notice a lost last message even when this node stops writing, and forgets peers that went quiet
+    @Scheduled(fixedDelayString = "${app.cache.coherence.heartbeat-millis:5000}")
+    public void heartbeat(){
+        synchronized (sendLock){
+            transport.send(InvalidationMessage.heartbeat(nodeId, sequence.get()));
+        }
+        long expiredBefore = System.currentTimeMillis() - peerExpiryHeartbeats * heartbeatMillis;
+        //a node that comes back starts over as a new peer; what it sent meanwhile is covered by max-staleness
+        peers.values().removeIf(peer -> peer.lastSeen < expiredBefore);
+    }
+
+    void receive(InvalidationMessage message){
+        if (nodeId.equals(message.origin())){
+            return;
+        }
+        received.incrementAndGet();
+
+        Peer peer = peers.computeIfAbsent(message.origin(), origin -> new Peer(message.sequence() - (message.isHeartbeat() ? 0 : 1)));
+        peer.lastSeen = System.currentTimeMillis();
+
+        boolean gap;
+        synchronized (peer){
+            gap = message.isHeartbeat() ? peer.heartbeat(message.sequence()) : peer.message(message.sequence(), reorderWindow);
+        }
+
+        if (gap){
+            gaps.incrementAndGet();
+            logger.warn("Missed cache invalidations from node {}, dropping all local caches", message.origin());
+            invalidateAllLocally();
+        }
+        if (!message.isHeartbeat()){
+            apply(message.region(), message.key());
+        }
+    }
+
+    private void apply(String regionName, String key){
+        List<Region> caches = regions.get(regionName);
+        if (caches == null){
+            return;
+        }
+        for (Region region : caches){
+            if (key == null){
+                region.evictAll().run();
+            } else {
+                region.evictKey().accept(key);
+            }
+        }
+        applied.incrementAndGet();
+    }
+
+    public void invalidateAllLocally(){
+        fullInvalidations.incrementAndGet();
+        regions.values().forEach(caches -> caches.forEach(region -> region.evictAll().run()));
+    }
+
+    public Map<String, Object> metrics(){
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("nodeId", nodeId);
+        metrics.put("sequence", sequence.get());
+        metrics.put("sent", sent.get());
+        metrics.put("received", received.get());
+        metrics.put("applied", applied.get());
+        metrics.put("gaps", gaps.get());
+        metrics.put("fullInvalidations", fullInvalidations.get());
+        metrics.put("maxStalenessMillis", maxStalenessMillis);
+        metrics.put("peers", peers.size());
+        Map<String, Long> peerAges = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        peers.forEach((origin, peer) -> peerAges.put(origin, now - peer.lastSeen));
+        metrics.put("peerLastSeenMillis", peerAges);
+        return metrics;
+    }
+
+    private record Region(Consumer<String> evictKey, Runnable evictAll) {
+    }
+
+    //callers synchronize on the peer
+    private static class Peer {
+        //every sequence up to here arrived or was given up on
+        private long contiguous;
+        //arrived ahead of a missing one
+        private final TreeSet<Long> ahead = new TreeSet<>();
+        //the sequence the previous heartbeat announced
+        private long announced;
+        private volatile long lastSeen;
+
+        private Peer(long contiguous) {
+            this.contiguous = contiguous;
+            this.announced = contiguous;
+        }
+
+        //true when a missing sequence fell out of the reorder window
+        private boolean message(long sequence, int reorderWindow){
+            if (sequence <= contiguous){
+                return false;
+            }
+            ahead.add(sequence);
+            advance();
+            if (!ahead.isEmpty() && ahead.last() - contiguous > reorderWindow){
+                skipTo(ahead.last());
+                return true;
+            }
+            return false;
+        }
+
+        //true when a sequence the previous heartbeat announced has still not arrived
+        private boolean heartbeat(long sequence){
+            boolean gap = announced > contiguous;
+            if (gap){
+                skipTo(announced);
+            }
+            announced = Math.max(announced, sequence);
+            return gap;
+        }
+
+        private void advance(){
+            while (ahead.remove(contiguous + 1)){
+                contiguous++;
+            }
+        }
+
+        private void skipTo(long sequence){
+            contiguous = Math.max(contiguous, sequence);
+            ahead.headSet(contiguous, true).clear();
+            advance();
+        }
+    }
+}
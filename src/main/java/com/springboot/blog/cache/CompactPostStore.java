@@ -0,0 +1,583 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//read model of hot posts kept as UTF-8 records in one byte arena (optionally off-heap), found through a primitive
+//id -> offset map, so a cached post costs its encoded size instead of an entity graph plus DTO copies.
+//Tag names are interned into a dictionary and stored as codes. Reads decode a fresh PostDto per call.
+//When max-bytes is reached a clock sweep evicts expired posts and posts not read since the hand last passed
+@Component
+public class CompactPostStore {
+
+    private static final long NULL_CATEGORY = Long.MIN_VALUE;
+    //id, version, categoryId, commentCount, viewCount, loadedAt
+    private static final int LOADED_AT_OFFSET = 5 * Long.BYTES;
+
+    private final boolean enabled;
+    private final boolean offHeap;
+    private final int maxBytes;
+    private final long maxAgeMillis;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongLongMap index = new LongLongMap(1024);
+    private ByteBuffer arena;
+    private int writePosition;
+    //bytes of replaced or evicted records still in the arena, reclaimed by compaction
+    private long deadBytes;
+
+    private final Map<String, Integer> tagCodes = new ConcurrentHashMap<>();
+    private volatile String[] tagNames = new String[0];
+
+    //bumped on every eviction, a load that raced with an eviction is not stored
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    //clock hand over the index slots
+    private int hand;
+
+    public CompactPostStore(@Value("${app.post-store.enabled:true}") boolean enabled,
+                            @Value("${app.post-store.off-heap:false}") boolean offHeap,
+                            @Value("${app.post-store.initial-bytes:1048576}") int initialBytes,
+                            @Value("${app.post-store.max-bytes:67108864}") int maxBytes,
+                            CacheCoherenceManager cacheCoherenceManager) {
+        this.enabled = enabled;
+        this.offHeap = offHeap;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = cacheCoherenceManager.getMaxStalenessMillis();
+        this.arena = allocate(Math.min(initialBytes, maxBytes));
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.POSTS,
+                postId -> evictLocally(Long.parseLong(postId)), this::evictAllLocally);
+    }
+
+    //null when the post is not held or older than the staleness bound
+    public PostDto get(long postId){
+        if (!enabled){
+            return null;
+        }
+        boolean expired;
+        lock.readLock().lock();
+        try {
+            int slot = index.slotOf(postId);
+            expired = slot >= 0 && isExpired(index.values[slot], System.currentTimeMillis());
+            if (slot >= 0 && !expired){
+                hits.incrementAndGet();
+                //a racy write of a hint, readers only ever set it
+                index.referenced[slot] = true;
+                return decode(offset(index.values[slot]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        misses.incrementAndGet();
+        if (expired){
+            removeExpired(postId);
+        }
+        return null;
+    }
+
+    //the posts found, keyed by id; the caller loads the rest
+    public Map<Long, PostDto> getAll(Collection<Long> postIds){
+        Map<Long, PostDto> posts = new HashMap<>();
+        for (Long postId : postIds){
+            PostDto post = get(postId);
+            if (post != null){
+                posts.put(postId, post);
+            }
+        }
+        return posts;
+    }
+
+    //read-through loads take the generation before loading and store with it
+    public long generation(){
+        return generation.get();
+    }
+
+    public void putLoaded(PostDto post, long startGeneration){
+        if (!enabled){
+            return;
+        }
+        byte[] record = encode(post);
+        lock.writeLock().lock();
+        try {
+            if (generation.get() == startGeneration){
+                write(post.getId(), post.getVersion(), record);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //write path: the post as it was committed, stored once the surrounding transaction commits
+    public void store(PostDto post){
+        if (!enabled){
+            return;
+        }
+        byte[] record = encode(post);
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                write(post.getId(), post.getVersion(), record);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    //evicting before the commit would let a concurrent read store the old row again
+    public void evict(long postId){
+        TransactionUtils.afterCommit(() -> evictLocally(postId));
+    }
+
+    public void evictAll(){
+        TransactionUtils.afterCommit(this::evictAllLocally);
+    }
+
+    public Map<String, Object> metrics(){
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            metrics.put("enabled", enabled);
+            metrics.put("offHeap", offHeap);
+            metrics.put("posts", index.size());
+            metrics.put("capacityBytes", arena.capacity());
+            metrics.put("usedBytes", writePosition);
+            metrics.put("deadBytes", deadBytes);
+            metrics.put("maxBytes", maxBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("internedTags", tagNames.length);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("compactions", compactions.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    private void evictLocally(long postId){
+        lock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            long entry = index.remove(postId);
+            if (entry != LongLongMap.MISSING){
+                deadBytes += length(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evictAllLocally(){
+        lock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            index.clear();
+            writePosition = 0;
+            deadBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //expired records are dropped right away so their bytes count as reclaimable
+    private void removeExpired(long postId){
+        lock.writeLock().lock();
+        try {
+            int slot = index.slotOf(postId);
+            if (slot >= 0 && isExpired(index.values[slot], System.currentTimeMillis())){
+                deadBytes += length(index.values[slot]);
+                index.removeAt(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isExpired(long entry, long now){
+        return now - arena.getLong(offset(entry) + LOADED_AT_OFFSET) > maxAgeMillis;
+    }
+
+    //callers hold the write lock
+    private void write(long postId, long version, byte[] record){
+        int existing = index.slotOf(postId);
+        if (existing >= 0){
+            //never replace a newer version with an older one, a slow load may finish after a write
+            if (arena.getLong(offset(index.values[existing]) + Long.BYTES) > version){
+                return;
+            }
+            deadBytes += length(index.values[existing]);
+            index.removeAt(existing);
+        }
+        if (!ensureCapacity(record.length)){
+            rejected.incrementAndGet();
+            return;
+        }
+        arena.put(writePosition, record);
+        index.put(postId, entry(writePosition, record.length));
+        writePosition += record.length;
+    }
+
+    //compacts into an arena with room to spare, so compactions stay rare; grows up to max-bytes and evicts beyond it
+    private boolean ensureCapacity(int length){
+        if ((long) writePosition + length <= arena.capacity()){
+            return true;
+        }
+        if (length > maxBytes){
+            return false;
+        }
+        long needed = writePosition - deadBytes + length;
+        if (needed > maxBytes){
+            //free an eighth of the store at once, so a full store does not compact on every put
+            needed = evictUntil(maxBytes - maxBytes / 8 - length) + length;
+        }
+        int capacity = arena.capacity();
+        while (capacity < maxBytes && capacity < needed + needed / 2){
+            capacity = (int) Math.min((long) capacity * 2, maxBytes);
+        }
+        compactInto(allocate(capacity));
+        return true;
+    }
+
+    //second-chance clock: a post read since the hand last passed keeps its slot once, expired posts go first.
+    //Returns the live bytes left
+    private long evictUntil(long liveTarget){
+        long live = writePosition - deadBytes;
+        long now = System.currentTimeMillis();
+        int mask = index.keys.length - 1;
+        while (live > liveTarget && index.size() > 0){
+            int slot = hand & mask;
+            if (index.keys[slot] == LongLongMap.EMPTY){
+                hand++;
+                continue;
+            }
+            long entry = index.values[slot];
+            if (index.referenced[slot] && !isExpired(entry, now)){
+                index.referenced[slot] = false;
+                hand++;
+                continue;
+            }
+            //removal may shift a later entry into this slot, so the hand stays to look at it
+            index.removeAt(slot);
+            deadBytes += length(entry);
+            live -= length(entry);
+            evictions.incrementAndGet();
+        }
+        return live;
+    }
+
+    private void compactInto(ByteBuffer target){
+        int position = 0;
+        for (int slot = 0; slot < index.keys.length; slot++){
+            if (index.keys[slot] == LongLongMap.EMPTY){
+                continue;
+            }
+            long entry = index.values[slot];
+            int length = length(entry);
+            target.put(position, arena, offset(entry), length);
+            index.values[slot] = entry(position, length);
+            position += length;
+        }
+        arena = target;
+        writePosition = position;
+        deadBytes = 0;
+        compactions.incrementAndGet();
+    }
+
+    private ByteBuffer allocate(int capacity){
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private byte[] encode(PostDto post){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(post.getId());
+            out.writeLong(post.getVersion());
+            out.writeLong(post.getCategoryId() == null ? NULL_CATEGORY : post.getCategoryId());
+            out.writeLong(post.getCommentCount());
+            out.writeLong(post.getViewCount());
+            out.writeLong(System.currentTimeMillis());
+            writeString(out, post.getTitle());
+            writeString(out, post.getDescription());
+            writeString(out, post.getContent());
+
+            if (post.getTags() == null){
+                out.writeInt(-1);
+            } else {
+                out.writeInt(post.getTags().size());
+                for (String tag : post.getTags()){
+                    out.writeInt(tagCode(tag));
+                }
+            }
+
+            if (post.getComments() == null){
+                out.writeInt(-1);
+            } else {
+                out.writeInt(post.getComments().size());
+                for (CommentDto comment : post.getComments()){
+                    out.writeLong(comment.getId());
+                    out.writeLong(comment.getVersion());
+                    writeString(out, comment.getName());
+                    writeString(out, comment.getEmail());
+                    writeString(out, comment.getBody());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    //callers hold the read lock; absolute reads only, so readers never share a buffer position
+    private PostDto decode(int offset){
+        Reader in = new Reader(arena, offset);
+        PostDto post = new PostDto();
+        post.setId(in.readLong());
+        post.setVersion(in.readLong());
+        long categoryId = in.readLong();
+        post.setCategoryId(categoryId == NULL_CATEGORY ? null : categoryId);
+        post.setCommentCount(in.readLong());
+        post.setViewCount(in.readLong());
+        in.readLong();
+        post.setTitle(in.readString());
+        post.setDescription(in.readString());
+        post.setContent(in.readString());
+
+        int tagCount = in.readInt();
+        if (tagCount >= 0){
+            String[] names = tagNames;
+            Set<String> tags = new TreeSet<>();
+            for (int i = 0; i < tagCount; i++){
+                tags.add(names[in.readInt()]);
+            }
+            post.setTags(tags);
+        }
+
+        int commentCount = in.readInt();
+        if (commentCount >= 0){
+            Set<CommentDto> comments = new HashSet<>();
+            for (int i = 0; i < commentCount; i++){
+                CommentDto comment = new CommentDto();
+                comment.setId(in.readLong());
+                comment.setVersion(in.readLong());
+                comment.setName(in.readString());
+                comment.setEmail(in.readString());
+                comment.setBody(in.readString());
+                comments.add(comment);
+            }
+            post.setComments(comments);
+        }
+        return post;
+    }
+
+    private int tagCode(String tag){
+        Integer code = tagCodes.get(tag);
+        if (code != null){
+            return code;
+        }
+        synchronized (tagCodes){
+            return tagCodes.computeIfAbsent(tag, name -> {
+                String[] names = Arrays.copyOf(tagNames, tagNames.length + 1);
+                names[names.length - 1] = name;
+                tagNames = names;
+                return names.length - 1;
+            });
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null){
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static long entry(int offset, int length){
+        return ((long) offset << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    private static int offset(long entry){
+        return (int) (entry >>> 32);
+    }
+
+    private static int length(long entry){
+        return (int) entry;
+    }
+
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+        private int position;
+
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        long readLong(){
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        int readInt(){
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        String readString(){
+            int length = readInt();
+            if (length < 0){
+                return null;
+            }
+            byte[] utf8 = new byte[length];
+            buffer.get(position, utf8);
+            position += length;
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    //open addressing long -> long map with linear probing; 0 marks a free slot, snowflake ids are never 0
+    private static class LongLongMap {
+
+        static final long EMPTY = 0L;
+        static final long MISSING = -1L;
+
+        long[] keys;
+        long[] values;
+        //clock reference bits, parallel to keys
+        boolean[] referenced;
+        private int size;
+
+        LongLongMap(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            referenced = new boolean[capacity];
+        }
+
+        int size(){
+            return size;
+        }
+
+        long get(long key){
+            int slot = slotOf(key);
+            return slot < 0 ? MISSING : values[slot];
+        }
+
+        //-1 when absent
+        int slotOf(long key){
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask){
+                if (keys[slot] == key){
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, long value){
+            if ((size + 1) * 4L > keys.length * 3L){
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key){
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY){
+                keys[slot] = key;
+                referenced[slot] = false;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        long remove(long key){
+            int slot = slotOf(key);
+            if (slot < 0){
+                return MISSING;
+            }
+            long removed = values[slot];
+            removeAt(slot);
+            return removed;
+        }
+
+        //backward-shift deletion keeps probe chains intact without tombstones
+        void removeAt(int slot){
+            int mask = keys.length - 1;
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask){
+                int home = slot(keys[next], mask);
+                //move the entry back when the gap lies on its probe path
+                if (((next - home) & mask) >= ((next - gap) & mask)){
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    referenced[gap] = referenced[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = EMPTY;
+            values[gap] = 0L;
+            referenced[gap] = false;
+            size--;
+        }
+
+        void clear(){
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(values, 0L);
+            Arrays.fill(referenced, false);
+            size = 0;
+        }
+
+        private void resize(int capacity){
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldReferenced = referenced;
+            keys = new long[capacity];
+            values = new long[capacity];
+            referenced = new boolean[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++){
+                if (oldKeys[i] != EMPTY){
+                    put(oldKeys[i], oldValues[i]);
+                    referenced[slotOf(oldKeys[i])] = oldReferenced[i];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask){
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.springboot.blog.cache;
+
+//one cache invalidation between nodes; sequence counts the invalidations an origin has sent, so receivers spot losses.
+//A heartbeat has no region and only announces the current sequence, a null key drops the whole region
+public record InvalidationMessage(String origin, long sequence, String region, String key) {
+
+    private static final String SEPARATOR = "\t";
+
+    public static InvalidationMessage heartbeat(String origin, long sequence){
+        return new InvalidationMessage(origin, sequence, null, null);
+    }
+
+    public boolean isHeartbeat(){
+        return region == null;
+    }
+
+    public String encode(){
+        return origin + SEPARATOR + sequence + SEPARATOR + (region == null ? "" : region) + SEPARATOR + (key == null ? "" : key);
+    }
+
+    public static InvalidationMessage decode(String text){
+        String[] parts = text.split(SEPARATOR, -1);
+        if (parts.length != 4){
+            throw new IllegalArgumentException("Malformed invalidation message");
+        }
+        return new InvalidationMessage(parts[0], Long.parseLong(parts[1]),
+                parts[2].isEmpty() ? null : parts[2], parts[3].isEmpty() ? null : parts[3]);
+    }
+}
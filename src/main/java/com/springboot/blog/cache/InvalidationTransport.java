@@ -0,0 +1,14 @@
+package com.springboot.blog.cache;
+
+import java.util.function.Consumer;
+
+//carries invalidations between nodes; delivery may be lossy or reordered, CacheCoherenceManager copes with both.
+//Sends of one node are serialized, a transport may block briefly but should not wait on the network
+public interface InvalidationTransport {
+
+    void start(Consumer<InvalidationMessage> receiver);
+
+    void send(InvalidationMessage message);
+
+    void stop();
+}
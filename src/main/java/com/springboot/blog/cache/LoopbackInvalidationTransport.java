@@ -0,0 +1,29 @@
+package com.springboot.blog.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+//delivers to every node started in this JVM, enough for a single instance and for tests that run several contexts
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private static final List<Consumer<InvalidationMessage>> RECEIVERS = new CopyOnWriteArrayList<>();
+
+    private Consumer<InvalidationMessage> receiver;
+
+    @Override
+    public void start(Consumer<InvalidationMessage> receiver) {
+        this.receiver = receiver;
+        RECEIVERS.add(receiver);
+    }
+
+    @Override
+    public void send(InvalidationMessage message) {
+        RECEIVERS.forEach(target -> target.accept(message));
+    }
+
+    @Override
+    public void stop() {
+        RECEIVERS.remove(receiver);
+    }
+}
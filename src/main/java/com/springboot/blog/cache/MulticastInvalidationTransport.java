@@ -0,0 +1,92 @@
+package com.springboot.blog.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+//one UDP datagram per invalidation to a multicast group shared by the instances; losses are caught by the sequence check
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(MulticastInvalidationTransport.class);
+
+    private final InetAddress group;
+    private final int port;
+    private final int ttl;
+
+    private MulticastSocket socket;
+    private DatagramSocket sender;
+    private Thread listener;
+
+    public MulticastInvalidationTransport(String group, int port, int ttl) {
+        try {
+            this.group = InetAddress.getByName(group);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.port = port;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public void start(Consumer<InvalidationMessage> receiver) {
+        try {
+            socket = new MulticastSocket(port);
+            socket.joinGroup(new InetSocketAddress(group, port), null);
+            MulticastSocket multicastSender = new MulticastSocket();
+            multicastSender.setTimeToLive(ttl);
+            sender = multicastSender;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        listener = new Thread(() -> listen(receiver), "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    private void listen(Consumer<InvalidationMessage> receiver){
+        byte[] buffer = new byte[1024];
+        while (!socket.isClosed()){
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receiver.accept(InvalidationMessage.decode(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8)));
+            } catch (SocketException e) {
+                //socket closed on shutdown
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Dropped unreadable cache invalidation", e);
+            }
+        }
+    }
+
+    @Override
+    public void send(InvalidationMessage message) {
+        byte[] data = message.encode().getBytes(StandardCharsets.UTF_8);
+        try {
+            sender.send(new DatagramPacket(data, data.length, group, port));
+        } catch (IOException e) {
+            //receivers see the sequence gap with the next message or heartbeat and drop their caches
+            logger.warn("Failed to send cache invalidation {}", message.sequence(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (socket != null){
+            socket.close();
+        }
+        if (sender != null){
+            sender.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.repository.PostRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//total number of posts refreshed in the background, served to listings that accept an approximate total
+@Component
+public class PostCountCache {
+
+    private final PostRepository postRepository;
+    private final AtomicLong count = new AtomicLong(-1);
+
+    public PostCountCache(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    public long get(){
+        long current = count.get();
+        if (current < 0){
+            //only the very first caller pays for the count
+            refresh();
+            current = count.get();
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${app.post-count.refresh-millis:30000}", initialDelayString = "${app.post-count.refresh-millis:30000}")
+    public void refresh(){
+        count.set(postRepository.count());
+    }
+}
@@ -0,0 +1,167 @@
+package com.springboot.blog.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+//keeps the serialized (and gzipped) JSON of large posts so repeat reads skip Jackson and compression
+@Component
+public class PostPayloadCache {
+
+    public static final String V1 = "v1";
+    public static final String V2 = "v2";
+
+    private final ObjectMapper objectMapper;
+    private final int minCachedSize;
+    private final Map<String, CachedPayload> entries;
+    private final long maxAgeMillis;
+
+    //bumped on every eviction, a load that raced with an eviction is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public PostPayloadCache(ObjectMapper objectMapper,
+                            @Value("${app.post-cache.min-size:2048}") int minCachedSize,
+                            @Value("${app.post-cache.max-entries:1000}") int maxEntries,
+                            CacheCoherenceManager cacheCoherenceManager) {
+        this.objectMapper = objectMapper;
+        this.maxAgeMillis = cacheCoherenceManager.getMaxStalenessMillis();
+        this.minCachedSize = minCachedSize;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPayload> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.POSTS,
+                postId -> evictLocally(Long.parseLong(postId)), this::evictAllLocally);
+    }
+
+    public static String key(String version, long postId){
+        return version + ":" + postId;
+    }
+
+    public <T> CachedPayload get(String key, Supplier<T> loader, ToLongFunction<T> versionOf){
+        CachedPayload cached = entries.get(key);
+        //entries past the staleness bound are reloaded even if an invalidation from another node got lost
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() <= maxAgeMillis){
+            return cached;
+        }
+
+        long startGeneration = generation.get();
+        T body = loader.get();
+        long version = versionOf.applyAsLong(body);
+        byte[] json = serialize(body);
+
+        //small payloads are cheap to rebuild and not worth compressing
+        if (json.length < minCachedSize){
+            return new CachedPayload(version, json, null, System.currentTimeMillis());
+        }
+
+        CachedPayload payload = new CachedPayload(version, json, gzip(json), System.currentTimeMillis());
+        if (generation.get() == startGeneration){
+            entries.put(key, payload);
+        }
+        return payload;
+    }
+
+    //multi-key variant of get: cached entries are served as is, the misses are loaded together with one loader call.
+    //Ids the loader does not return are absent from the result
+    public <T> Map<Long, CachedPayload> getAll(String version, Collection<Long> postIds,
+                                               Function<List<Long>, Map<Long, T>> loader, ToLongFunction<T> versionOf){
+        Map<Long, CachedPayload> payloads = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Long postId : postIds){
+            CachedPayload cached = entries.get(key(version, postId));
+            if (cached != null && now - cached.loadedAt() <= maxAgeMillis){
+                payloads.put(postId, cached);
+            } else {
+                misses.add(postId);
+            }
+        }
+        if (misses.isEmpty()){
+            return payloads;
+        }
+
+        long startGeneration = generation.get();
+        Map<Long, T> loaded = loader.apply(misses);
+        for (Map.Entry<Long, T> body : loaded.entrySet()){
+            byte[] json = serialize(body.getValue());
+            long bodyVersion = versionOf.applyAsLong(body.getValue());
+            if (json.length < minCachedSize){
+                payloads.put(body.getKey(), new CachedPayload(bodyVersion, json, null, now));
+                continue;
+            }
+            CachedPayload payload = new CachedPayload(bodyVersion, json, gzip(json), now);
+            if (generation.get() == startGeneration){
+                entries.put(key(version, body.getKey()), payload);
+            }
+            payloads.put(body.getKey(), payload);
+        }
+        return payloads;
+    }
+
+    //evicting before the commit would let a concurrent read cache the old row again
+    public void evict(long postId){
+        TransactionUtils.afterCommit(() -> evictLocally(postId));
+    }
+
+    public void evictAll(){
+        TransactionUtils.afterCommit(this::evictAllLocally);
+    }
+
+    private void evictLocally(long postId){
+        generation.incrementAndGet();
+        entries.remove(key(V1, postId));
+        entries.remove(key(V2, postId));
+    }
+
+    private void evictAllLocally(){
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private byte[] serialize(Object body){
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize post payload", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json){
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    //version is the entity version the bytes were rendered from
+    public record CachedPayload(long version, byte[] json, byte[] gzip, long loadedAt) {
+
+        public boolean isCompressed(){
+            return gzip != null;
+        }
+    }
+}
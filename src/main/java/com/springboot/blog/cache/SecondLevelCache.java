@@ -0,0 +1,111 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.utils.TransactionUtils;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Hibernate keeps its second-level cache right for writes made through the session. This evicts what it cannot see:
+//JDBC writes (counter flush, comment ingest) and writes on other nodes, which arrive as coherence invalidations
+@Component
+public class SecondLevelCache {
+
+    public static final String POSTS_BY_CATEGORY = "query.postsByCategory";
+
+    private static final String POST_COMMENTS = Post.class.getName() + ".comments";
+    private static final String POST_TAGS = Post.class.getName() + ".tags";
+    private static final String CATEGORY_POSTS = Category.class.getName() + ".posts";
+
+    private final Cache cache;
+    private final Statistics statistics;
+
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory, CacheCoherenceManager cacheCoherenceManager) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.cache = sessionFactory.getCache();
+        this.statistics = sessionFactory.getStatistics();
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.POSTS,
+                postId -> evictPostLocally(Long.parseLong(postId)), this::evictPostsLocally);
+        //the cached category queries hold post ids only, so they change when a peer adds, removes or moves a post
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.POST_LISTINGS,
+                categoryId -> cache.evictQueryRegion(POSTS_BY_CATEGORY), () -> cache.evictQueryRegion(POSTS_BY_CATEGORY));
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.CATEGORIES, categoryId -> {
+            cache.evictEntityData(Category.class, Long.parseLong(categoryId));
+            cache.evictCollectionData(CATEGORY_POSTS, Long.parseLong(categoryId));
+        }, () -> {
+            cache.evictEntityData(Category.class);
+            cache.evictCollectionData(CATEGORY_POSTS);
+        });
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.COMMENTS,
+                commentId -> cache.evictEntityData(Comment.class, Long.parseLong(commentId)),
+                () -> cache.evictEntityData(Comment.class));
+    }
+
+    //for JDBC writes to a post row or its comments, applied once the surrounding transaction commits
+    public void evictPost(long postId){
+        TransactionUtils.afterCommit(() -> evictPostLocally(postId));
+    }
+
+    public void evictPosts(Collection<Long> postIds){
+        TransactionUtils.afterCommit(() -> postIds.forEach(this::evictPostLocally));
+    }
+
+    public void evictAllPosts(){
+        TransactionUtils.afterCommit(this::evictPostsLocally);
+    }
+
+    //per region hit, miss and put counts, plus the query cache totals
+    public Map<String, Object> metrics(){
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        metrics.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        metrics.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        metrics.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        metrics.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        metrics.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        metrics.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames){
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null){
+                continue;
+            }
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("hits", region.getHitCount());
+            counts.put("misses", region.getMissCount());
+            counts.put("puts", region.getPutCount());
+            regions.put(regionName, counts);
+        }
+        metrics.put("regions", regions);
+        return metrics;
+    }
+
+    private void evictPostLocally(long postId){
+        cache.evictEntityData(Post.class, postId);
+        cache.evictCollectionData(POST_COMMENTS, postId);
+        cache.evictCollectionData(POST_TAGS, postId);
+    }
+
+    //posts cascade to their comments and are referenced from category collections, so all of those go together
+    private void evictPostsLocally(){
+        cache.evictEntityData(Post.class);
+        cache.evictEntityData(Comment.class);
+        cache.evictCollectionData(POST_COMMENTS);
+        cache.evictCollectionData(POST_TAGS);
+        cache.evictCollectionData(CATEGORY_POSTS);
+        cache.evictQueryRegion(POSTS_BY_CATEGORY);
+    }
+}
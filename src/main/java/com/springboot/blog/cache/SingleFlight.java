@@ -0,0 +1,63 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.exception.BlogAPIException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+//coalesces concurrent loads of the same key: the first caller runs the loader, callers arriving while it runs wait
+//for and share its result (or exception). Only in-flight keys are held, so memory is bounded by concurrency.
+//Shared results must be treated as read-only by callers
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    public SingleFlight(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public V execute(K key, Supplier<V> loader){
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null){
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private V await(CompletableFuture<V> call){
+        try {
+            return call.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause){
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Timed out waiting for a concurrent load, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for a concurrent load");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.springboot.blog.config;
+
+import com.springboot.blog.cache.InvalidationTransport;
+import com.springboot.blog.cache.LoopbackInvalidationTransport;
+import com.springboot.blog.cache.MulticastInvalidationTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheCoherenceConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.coherence.transport", havingValue = "multicast")
+    public InvalidationTransport multicastInvalidationTransport(@Value("${app.cache.coherence.multicast.group:239.1.2.3}") String group,
+                                                                @Value("${app.cache.coherence.multicast.port:45600}") int port,
+                                                                @Value("${app.cache.coherence.multicast.ttl:1}") int ttl){
+        return new MulticastInvalidationTransport(group, port, ttl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.coherence.transport", havingValue = "loopback", matchIfMissing = true)
+    public InvalidationTransport loopbackInvalidationTransport(){
+        return new LoopbackInvalidationTransport();
+    }
+}
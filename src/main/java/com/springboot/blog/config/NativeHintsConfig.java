@@ -0,0 +1,55 @@
+package com.springboot.blog.config;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.OutboxEvent;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.Role;
+import com.springboot.blog.entity.Tag;
+import com.springboot.blog.entity.User;
+import com.springboot.blog.ingest.JournaledComment;
+import com.springboot.blog.payload.CategoryDto;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.ErrorDetails;
+import com.springboot.blog.payload.JWTAuthResponse;
+import com.springboot.blog.payload.LoginDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostDtoV2;
+import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostSummary;
+import com.springboot.blog.payload.PostTag;
+import com.springboot.blog.payload.RegisterDto;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+//reflection the native image cannot discover on its own: ModelMapper walks getters and setters of entities and DTOs,
+//Jackson binds the DTOs and the journal records
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.BlogRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class BlogRuntimeHints implements RuntimeHintsRegistrar {
+
+        private static final Class<?>[] REFLECTIVE_TYPES = {
+                Post.class, Comment.class, Category.class, User.class, Role.class, Tag.class, OutboxEvent.class,
+                PostDto.class, PostDtoV2.class, CommentDto.class, CategoryDto.class, PostResponse.class,
+                LoginDto.class, RegisterDto.class, JWTAuthResponse.class, ErrorDetails.class, JournaledComment.class
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : REFLECTIVE_TYPES){
+                hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+            }
+            //projection proxies for the summary queries
+            hints.proxies().registerJdkProxy(PostSummary.class, org.springframework.data.projection.TargetAware.class,
+                    org.springframework.aop.SpringProxy.class, org.springframework.core.DecoratingProxy.class);
+            hints.proxies().registerJdkProxy(PostTag.class, org.springframework.data.projection.TargetAware.class,
+                    org.springframework.aop.SpringProxy.class, org.springframework.core.DecoratingProxy.class);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.springboot.blog.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                             @Value("${app.datasource.replica.urls}") String[] replicaUrls,
+                                                             @Value("${app.datasource.replica.stickiness-millis:5000}") long stickinessMillis){
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+
+        //replicas share the primary credentials and only differ by url
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++){
+            replicas.put("replica-" + i, properties.initializeDataSourceBuilder().url(replicaUrls[i].trim()).build());
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas, stickinessMillis);
+    }
+
+    //the lazy proxy defers picking a target until the first statement, when the read-only flag of the transaction is known
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource){
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,148 @@
+package com.springboot.blog.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//routes read-only transactions to healthy replicas and everything else to the primary
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    private static final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final CopyOnWriteArrayList<String> healthyReplicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    //users that wrote recently keep reading from the primary so they see their own changes
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+    private final long stickinessMillis;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long stickinessMillis) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.healthyReplicas = new CopyOnWriteArrayList<>(replicas.keySet());
+        this.stickinessMillis = stickinessMillis;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String principal = currentPrincipal();
+        long now = System.currentTimeMillis();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()){
+            if (principal != null && TransactionSynchronizationManager.isActualTransactionActive()){
+                stickyUntil.put(principal, now + stickinessMillis);
+            }
+            return PRIMARY;
+        }
+
+        if (principal != null){
+            Long until = stickyUntil.get(principal);
+            if (until != null && until > now){
+                return PRIMARY;
+            }
+        }
+        return nextHealthyReplica();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String key = (String) determineCurrentLookupKey();
+        if (PRIMARY.equals(key)){
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            //fail over to the primary right away, the health check brings the replica back
+            markUnhealthy(key, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.health-check-millis:5000}")
+    public void checkReplicas() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()){
+            try (Connection connection = replica.getValue().getConnection()) {
+                if (connection.isValid(1)){
+                    if (healthyReplicas.addIfAbsent(replica.getKey())){
+                        logger.info("Replica {} is back in rotation", replica.getKey());
+                    }
+                } else {
+                    markUnhealthy(replica.getKey(), null);
+                }
+            } catch (SQLException e) {
+                markUnhealthy(replica.getKey(), e);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= now);
+    }
+
+    public List<String> getHealthyReplicas() {
+        return new ArrayList<>(healthyReplicas);
+    }
+
+    private String nextHealthyReplica(){
+        List<String> healthy = healthyReplicas;
+        int size = healthy.size();
+        if (size == 0){
+            return PRIMARY;
+        }
+        try {
+            return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), size));
+        } catch (IndexOutOfBoundsException e) {
+            //a replica was taken out of rotation concurrently
+            return PRIMARY;
+        }
+    }
+
+    private void markUnhealthy(String key, SQLException cause){
+        if (healthyReplicas.remove(key)){
+            logger.warn("Replica {} taken out of rotation: {}", key, cause != null ? cause.getMessage() : "connection not valid");
+        }
+    }
+
+    //anonymous requests all share the name "anonymousUser", making them sticky would pin every anonymous reader
+    //to the primary after any anonymous write (registration, login bookkeeping)
+    private static String currentPrincipal(){
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || trustResolver.isAnonymous(authentication)){
+            return null;
+        }
+        return authentication.getName();
+    }
+}
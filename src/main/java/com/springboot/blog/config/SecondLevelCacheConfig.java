@@ -0,0 +1,54 @@
+package com.springboot.blog.config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.spi.service.ServiceCreationConfiguration;
+import org.ehcache.xml.XmlConfiguration;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//the second-level cache regions come from ehcache.xml, but every region that expires does so after
+//app.cache.coherence.max-staleness-millis, the bound the coherence protocol promises for all in-process caches
+@Configuration
+public class SecondLevelCacheConfig {
+
+    static final String EHCACHE_XML = "ehcache.xml";
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager(@Value("${app.cache.coherence.max-staleness-millis:30000}") long maxStalenessMillis){
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManager(Duration.ofMillis(maxStalenessMillis)));
+    }
+
+    //Hibernate closes the cache manager when the session factory closes
+    static CacheManager cacheManager(Duration timeToLive){
+        ClassLoader classLoader = SecondLevelCacheConfig.class.getClassLoader();
+        XmlConfiguration xml = new XmlConfiguration(classLoader.getResource(EHCACHE_XML), classLoader);
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName(), classLoader);
+        return provider.getCacheManager(URI.create(EHCACHE_XML), withTimeToLive(xml, timeToLive));
+    }
+
+    //regions that never expire (the update timestamps) are kept as they are
+    static org.ehcache.config.Configuration withTimeToLive(org.ehcache.config.Configuration configuration, Duration timeToLive){
+        Map<String, CacheConfiguration<?, ?>> caches = new LinkedHashMap<>();
+        configuration.getCacheConfigurations().forEach((alias, cache) -> caches.put(alias,
+                cache.getExpiryPolicy() == ExpiryPolicy.NO_EXPIRY ? cache
+                        : CacheConfigurationBuilder.newCacheConfigurationBuilder(cache)
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive)).build()));
+        return new DefaultConfiguration(caches, configuration.getClassLoader(),
+                configuration.getServiceCreationConfigurations().toArray(new ServiceCreationConfiguration<?, ?>[0]));
+    }
+}
@@ -0,0 +1,104 @@
+package com.springboot.blog.config;
+
+import com.springboot.blog.security.JwtTokenProvider;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.utils.AppConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+
+//runs the hot request paths a number of times before the web server starts, so the first real requests find the
+//classes loaded and the JIT warm instead of queueing behind the warm-up (scripts/warmup-benchmark.sh measures it).
+//In a CDS training run (app.cds.training=true) the JVM exits once the app is ready and
+//-XX:ArchiveClassesAtExit dumps everything that was loaded into the archive
+@Component
+public class StartupWarmup implements SmartLifecycle {
+
+    //WebServerStartStopLifecycle starts in phase SmartLifecycle.DEFAULT_PHASE - 2048, the port opens after this
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private JwtTokenProvider jwtTokenProvider;
+    private PostService postService;
+    private ApplicationContext applicationContext;
+    private int iterations;
+    private boolean cdsTraining;
+    private volatile boolean running;
+
+    public StartupWarmup(JwtTokenProvider jwtTokenProvider, PostService postService, ApplicationContext applicationContext,
+                         @Value("${app.warmup.iterations:0}") int iterations,
+                         @Value("${app.cds.training:false}") boolean cdsTraining) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.postService = postService;
+        this.applicationContext = applicationContext;
+        this.iterations = iterations;
+        this.cdsTraining = cdsTraining;
+    }
+
+    @Override
+    public void start(){
+        if (iterations > 0){
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < iterations; i++){
+                warmUpJwt();
+                warmUpPostReads();
+            }
+            logger.info("Warm-up of {} iterations took {} ms", iterations, System.currentTimeMillis() - start);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop(){
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning(){
+        return running;
+    }
+
+    @Override
+    public int getPhase(){
+        return PHASE;
+    }
+
+    //the training run also loads the web server's classes before it exits
+    @EventListener(ApplicationReadyEvent.class)
+    public void exitAfterCdsTraining(){
+        if (cdsTraining){
+            logger.info("CDS training run finished, exiting to write the class archive");
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private void warmUpJwt(){
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                "warmup@localhost", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        String token = jwtTokenProvider.generateToken(authentication);
+        jwtTokenProvider.validate(token);
+        jwtTokenProvider.getUsername(token);
+        jwtTokenProvider.validate(token + "x");
+    }
+
+    private void warmUpPostReads(){
+        try {
+            postService.getAllPosts(0, 10, AppConstants.DEFAULT_SORT_BY, AppConstants.DEFAULT_SORT_DIRECTION,
+                    AppConstants.VIEW_SUMMARY, AppConstants.COUNT_NONE, null, AppConstants.DEFAULT_TAG_MATCH);
+            postService.getAllPosts(0, 10, AppConstants.DEFAULT_SORT_BY, AppConstants.DEFAULT_SORT_DIRECTION,
+                    AppConstants.VIEW_FULL, AppConstants.COUNT_EXACT, null, AppConstants.DEFAULT_TAG_MATCH);
+        } catch (RuntimeException e) {
+            //an empty or unreachable database only makes the warm-up less useful
+            logger.debug("Post read warm-up failed", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.springboot.blog.controller;
+
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.cache.CompactPostStore;
+import com.springboot.blog.cache.SecondLevelCache;
+import com.springboot.blog.ingest.CommentIngestQueue;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+@SecurityRequirement(
+        name = "Bearer Authentication"
+)
+@Tag(
+        name = "Admin REST APIs"
+)
+public class AdminController {
+
+    private CacheCoherenceManager cacheCoherenceManager;
+    private CompactPostStore compactPostStore;
+    private SecondLevelCache secondLevelCache;
+    private CommentIngestQueue commentIngestQueue;
+
+    public AdminController(CacheCoherenceManager cacheCoherenceManager, CompactPostStore compactPostStore,
+                           SecondLevelCache secondLevelCache, CommentIngestQueue commentIngestQueue) {
+        this.cacheCoherenceManager = cacheCoherenceManager;
+        this.compactPostStore = compactPostStore;
+        this.secondLevelCache = secondLevelCache;
+        this.commentIngestQueue = commentIngestQueue;
+    }
+
+    @GetMapping("/cache/coherence")
+    @Operation(
+            summary = "Cache Coherence Metrics REST API",
+            description = "Cache Coherence Metrics REST API returns the invalidation counters of this node and when each peer was last heard from."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<Map<String, Object>> getCacheCoherenceMetrics(){
+        return ResponseEntity.ok(cacheCoherenceManager.metrics());
+    }
+
+    @GetMapping("/cache/post-store")
+    @Operation(
+            summary = "Post Store Metrics REST API",
+            description = "Post Store Metrics REST API returns how many posts the compact read model holds, its arena usage and hit counters."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<Map<String, Object>> getPostStoreMetrics(){
+        return ResponseEntity.ok(compactPostStore.metrics());
+    }
+
+    @GetMapping("/cache/second-level")
+    @Operation(
+            summary = "Second-Level Cache Statistics REST API",
+            description = "Second-Level Cache Statistics REST API returns the Hibernate entity, collection and query cache hit, miss and put counts per region."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<Map<String, Object>> getSecondLevelCacheStatistics(){
+        return ResponseEntity.ok(secondLevelCache.metrics());
+    }
+
+    @GetMapping("/comment-ingest")
+    @Operation(
+            summary = "Comment Ingest Metrics REST API",
+            description = "Comment Ingest Metrics REST API returns how many acknowledged comments wait for the writers and how many the database refused."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<Map<String, Object>> getCommentIngestMetrics(){
+        return ResponseEntity.ok(commentIngestQueue.metrics());
+    }
+
+    @PostMapping("/cache/invalidate")
+    @Operation(
+            summary = "Invalidate Caches REST API",
+            description = "Invalidate Caches REST API drops the in-process caches on this node and asks every other node to do the same."
+    )
+    @ApiResponse(
+            responseCode = "204",
+            description = "Http Status 204 NO CONTENT"
+    )
+    public ResponseEntity<Void> invalidateCaches(){
+        cacheCoherenceManager.invalidateAllLocally();
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, null);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.CATEGORIES, null);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.PRINCIPALS, null);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.COMMENTS, null);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,16 +2,19 @@ package com.springboot.blog.controller;
 
 import com.springboot.blog.payload.CategoryDto;
 import com.springboot.blog.service.CategoryService;
+import com.springboot.blog.utils.AppConstants;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -95,6 +98,26 @@ public class CategoryController {
         return ResponseEntity.ok(category);
     }
 
+    //Building Patch Category REST API
+    @PatchMapping(value = "{id}", consumes = {AppConstants.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(
+            name = "Bearer Authentication"
+    )
+    @Operation(
+            summary = "Patch Category REST API",
+            description = "Patch Category REST API applies a JSON Merge Patch and only updates the fields it contains."
+    )
+    @ApiResponse(
+            responseCode = "204",
+            description = "Http Status 204 NO CONTENT"
+    )
+    public ResponseEntity<Void> patchCategory(@RequestBody Map<String, Object> patch,
+                                              @PathVariable("id") Long categoryId){
+        categoryService.patchCategory(patch, categoryId);
+        return ResponseEntity.noContent().build();
+    }
+
     //Building delete Category REST API
     @DeleteMapping("{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -2,11 +2,16 @@ package com.springboot.blog.controller;
 
 import com.springboot.blog.payload.CommentDto;
 import com.springboot.blog.service.CommentService;
+import com.springboot.blog.stream.CommentStreamHub;
+import com.springboot.blog.stream.EventStreamEmitter;
+import com.springboot.blog.utils.ETagUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,9 +25,11 @@ import java.util.List;
 public class CommentController {
 
     private CommentService commentService;
+    private CommentStreamHub commentStreamHub;
 
-    public CommentController(CommentService commentService) {
+    public CommentController(CommentService commentService, CommentStreamHub commentStreamHub) {
         this.commentService = commentService;
+        this.commentStreamHub = commentStreamHub;
     }
 
     @Operation(
@@ -52,6 +59,20 @@ public class CommentController {
         return commentService.getCommentsByPostId(postId);
     }
 
+    @GetMapping(value = "{postId}/comments/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream Comments by Post REST API",
+            description = "Stream Comments by Post REST API pushes created, updated and deleted comments of the post as server-sent events. A client reconnecting with Last-Event-ID first receives the events it missed, or a reset event when it has to re-read the comments."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public EventStreamEmitter streamComments(@PathVariable(value = "postId") long postId,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId){
+        return commentStreamHub.subscribe(postId, lastEventId);
+    }
+
     @GetMapping("{postId}/comments/{commentId}")
     @Operation(
             summary = "Get Comment by Id REST API",
@@ -63,7 +84,8 @@ public class CommentController {
     )
     public ResponseEntity<CommentDto> getCommentById(@PathVariable(value = "postId") long postId,
                                                      @PathVariable(value = "commentId") long commentId){
-        return new ResponseEntity<>(commentService.getCommentById(postId,commentId), HttpStatus.OK);
+        CommentDto commentDto = commentService.getCommentById(postId,commentId);
+        return ResponseEntity.ok().eTag(ETagUtils.toETag(commentDto.getVersion())).body(commentDto);
     }
 
     @PutMapping("{postId}/comments/{commentId}")
@@ -75,10 +97,16 @@ public class CommentController {
             responseCode = "200",
             description = "Http Status 200 SUCCESS"
     )
+    @ApiResponse(
+            responseCode = "412",
+            description = "Http Status 412 PRECONDITION FAILED when If-Match no longer matches the comment version"
+    )
     public ResponseEntity<CommentDto> updateComment(@PathVariable(value = "postId") long postId,
                                                     @PathVariable(value = "commentId") long commentId,
-                                                    @Valid @RequestBody CommentDto commentDto){
-        return new ResponseEntity<>(commentService.updateComment(postId, commentId, commentDto), HttpStatus.OK);
+                                                    @Valid @RequestBody CommentDto commentDto,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        CommentDto updatedComment = commentService.updateComment(postId, commentId, commentDto, ETagUtils.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETagUtils.toETag(updatedComment.getVersion())).body(updatedComment);
     }
 
     @DeleteMapping("{postId}/comments/{commentId}")
@@ -1,22 +1,37 @@
 package com.springboot.blog.controller;
 
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostDtoV2;
 import com.springboot.blog.payload.PostResponse;
 import com.springboot.blog.service.PostService;
+import com.springboot.blog.stats.PostCounterAggregator;
+import com.springboot.blog.utils.AcceptEncodingUtils;
 import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.ETagUtils;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
 
 @RestController
 @RequestMapping("api/posts")
@@ -26,9 +41,13 @@ import java.util.List;
 public class PostController {
 
     private PostService postService;
+    private PostPayloadCache postPayloadCache;
+    private PostCounterAggregator postCounterAggregator;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, PostPayloadCache postPayloadCache, PostCounterAggregator postCounterAggregator) {
         this.postService = postService;
+        this.postPayloadCache = postPayloadCache;
+        this.postCounterAggregator = postCounterAggregator;
     }
 
     //create blog post
@@ -52,7 +71,7 @@ public class PostController {
     @GetMapping("/v1")
     @Operation(
             summary = "Get All Post REST API",
-            description = "Get All Post REST API is used to get all post from the database."
+            description = "Get All Post REST API is used to get all post from the database. Pass view=summary to skip content and comments, count=none or count=approximate to skip the exact total, tag (repeatable) with tagMatch=all or any to filter by tags; tag filtered listings can only be sorted by id."
     )
     @ApiResponse(
             responseCode = "200",
@@ -61,8 +80,12 @@ public class PostController {
     public ResponseEntity<PostResponse> getAllPosts(@RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
                                                     @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
                                                     @RequestParam(value = "sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
-                                                    @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false) String sortDir){
-        return ResponseEntity.ok(postService.getAllPosts(pageNo, pageSize, sortBy, sortDir));
+                                                    @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false) String sortDir,
+                                                    @RequestParam(value = "view", defaultValue = AppConstants.DEFAULT_VIEW, required = false) String view,
+                                                    @RequestParam(value = "count", defaultValue = AppConstants.DEFAULT_COUNT_MODE, required = false) String countMode,
+                                                    @RequestParam(value = "tag", required = false) List<String> tags,
+                                                    @RequestParam(value = "tagMatch", defaultValue = AppConstants.DEFAULT_TAG_MATCH, required = false) String tagMatch){
+        return ResponseEntity.ok(postService.getAllPosts(pageNo, pageSize, sortBy, sortDir, view, countMode, tags, tagMatch));
     }
 
     @GetMapping(value = "/{id}", headers = "VERSION=1")
@@ -72,10 +95,15 @@ public class PostController {
     )
     @ApiResponse(
             responseCode = "200",
-            description = "Http Status 200 SUCCESS"
+            description = "Http Status 200 SUCCESS",
+            content = @Content(schema = @Schema(implementation = PostDto.class))
     )
-    public ResponseEntity<PostDto> getPostById(@PathVariable("id") long postId){
-        return ResponseEntity.ok(postService.getPostById(postId));
+    public ResponseEntity<byte[]> getPostById(@PathVariable("id") long postId,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        PostPayloadCache.CachedPayload payload = postPayloadCache.get(PostPayloadCache.key(PostPayloadCache.V1, postId),
+                () -> postService.getPostById(postId), PostDto::getVersion);
+        postCounterAggregator.postViewed(postId);
+        return toResponse(payload, acceptEncoding);
     }
 
     @GetMapping(value = "/{id}", headers = "VERSION=2")
@@ -85,9 +113,18 @@ public class PostController {
     )
     @ApiResponse(
             responseCode = "200",
-            description = "Http Status 200 SUCCESS"
+            description = "Http Status 200 SUCCESS",
+            content = @Content(schema = @Schema(implementation = PostDtoV2.class))
     )
-    public ResponseEntity<PostDtoV2> getPostByIdV2(@PathVariable("id") long postId){
+    public ResponseEntity<byte[]> getPostByIdV2(@PathVariable("id") long postId,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        PostPayloadCache.CachedPayload payload = postPayloadCache.get(PostPayloadCache.key(PostPayloadCache.V2, postId),
+                () -> getPostDtoV2(postId), PostDtoV2::getVersion);
+        postCounterAggregator.postViewed(postId);
+        return toResponse(payload, acceptEncoding);
+    }
+
+    private PostDtoV2 getPostDtoV2(long postId){
         PostDto postDto =  postService.getPostById(postId);
         PostDtoV2 postDtoV2 = new PostDtoV2();
         postDtoV2.setId(postDto.getId());
@@ -96,13 +133,26 @@ public class PostController {
         postDtoV2.setComments(postDto.getComments());
         postDtoV2.setContent(postDto.getContent());
         postDtoV2.setCategoryId(postDto.getCategoryId());
+        postDtoV2.setVersion(postDto.getVersion());
+        postDtoV2.setCommentCount(postDto.getCommentCount());
+        postDtoV2.setViewCount(postDto.getViewCount());
+
+        postDtoV2.setTags(postDto.getTags() == null ? new ArrayList<>() : new ArrayList<>(postDto.getTags()));
+        return postDtoV2;
+    }
+
+    //large payloads are served pre-compressed when the client accepts gzip, smaller ones are left to server.compression.
+    //Both kinds vary by Accept-Encoding, so shared caches keep the gzip and identity bodies apart
+    private ResponseEntity<byte[]> toResponse(PostPayloadCache.CachedPayload payload, String acceptEncoding){
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .eTag(ETagUtils.toETag(payload.version()));
 
-        List<String> tags = new ArrayList<>();
-        tags.add("Java");
-        tags.add("Spring-Boot");
-        tags.add("AWS");
-        postDtoV2.setTags(tags);
-        return ResponseEntity.ok(postDtoV2);
+        if (payload.isCompressed() && AcceptEncodingUtils.acceptsGzip(acceptEncoding)){
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return response.body(payload.json());
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -118,8 +168,37 @@ public class PostController {
             responseCode = "200",
             description = "Http Status 200 SUCCESS"
     )
-    public ResponseEntity<PostDto> updatePost(@Valid @RequestBody PostDto postDto, @PathVariable("id") long postId){
-        return new ResponseEntity<>(postService.updatePost(postDto, postId), HttpStatus.OK);
+    @ApiResponse(
+            responseCode = "412",
+            description = "Http Status 412 PRECONDITION FAILED when If-Match no longer matches the post version"
+    )
+    public ResponseEntity<PostDto> updatePost(@Valid @RequestBody PostDto postDto, @PathVariable("id") long postId,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        PostDto updatedPost = postService.updatePost(postDto, postId, ETagUtils.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETagUtils.toETag(updatedPost.getVersion())).body(updatedPost);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PatchMapping(value = "/v1/{id}", consumes = {AppConstants.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @SecurityRequirement(
+            name = "Bearer Authentication"
+    )
+    @Operation(
+            summary = "Patch Post REST API",
+            description = "Patch Post REST API applies a JSON Merge Patch and only updates the fields it contains."
+    )
+    @ApiResponse(
+            responseCode = "204",
+            description = "Http Status 204 NO CONTENT"
+    )
+    @ApiResponse(
+            responseCode = "412",
+            description = "Http Status 412 PRECONDITION FAILED when If-Match no longer matches the post version"
+    )
+    public ResponseEntity<Void> patchPost(@RequestBody Map<String, Object> patch, @PathVariable("id") long postId,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        long version = postService.patchPost(patch, postId, ETagUtils.parseIfMatch(ifMatch));
+        return ResponseEntity.noContent().eTag(ETagUtils.toETag(version)).build();
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -140,10 +219,91 @@ public class PostController {
         return new ResponseEntity<>("Post entity deleted successfully...", HttpStatus.OK);
     }
 
+    @GetMapping("/v1/trending")
+    @Operation(
+            summary = "Get Trending Posts REST API",
+            description = "Get Trending Posts REST API returns the posts with the most recent comment activity, best first."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<List<PostDto>> getTrendingPosts(@RequestParam(value = "limit", defaultValue = AppConstants.DEFAULT_TRENDING_LIMIT, required = false) int limit){
+        int boundedLimit = Math.max(1, Math.min(limit, AppConstants.MAX_TRENDING_LIMIT));
+        return ResponseEntity.ok(postService.getTrendingPosts(boundedLimit));
+    }
+
+    @GetMapping("/v1/batch")
+    @Operation(
+            summary = "Get Posts by Ids REST API",
+            description = "Get Posts by Ids REST API returns the requested posts in the requested order together with the ids that do not exist."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<byte[]> getPostsByIds(@RequestParam("ids") List<Long> ids){
+        return batchResponse(ids);
+    }
+
+    //same as the GET variant, for id lists too long for a query string
+    @PostMapping("/v1/batch")
+    @Operation(
+            summary = "Get Posts by Ids REST API",
+            description = "Get Posts by Ids REST API returns the requested posts in the requested order together with the ids that do not exist."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Http Status 200 SUCCESS"
+    )
+    public ResponseEntity<byte[]> getPostsByIdsInBody(@RequestBody List<Long> ids){
+        return batchResponse(ids);
+    }
+
+    //the body is stitched from the cached JSON of each post, so cached posts are not serialized again
+    private ResponseEntity<byte[]> batchResponse(List<Long> ids){
+        //a JSON null in the body, or an empty element in the query string
+        if (ids == null || ids.contains(null)){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Post ids must not be null");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.isEmpty() || requested.size() > AppConstants.MAX_BATCH_IDS){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Between 1 and " + AppConstants.MAX_BATCH_IDS + " post ids can be requested at once");
+        }
+
+        Map<Long, PostPayloadCache.CachedPayload> payloads = postPayloadCache.getAll(PostPayloadCache.V1, requested,
+                postService::getPostsByIds, PostDto::getVersion);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        StringJoiner missingIds = new StringJoiner(",", "[", "]");
+        StringJoiner missingIdStrings = new StringJoiner(",", "[", "]");
+        body.writeBytes("{\"posts\":[".getBytes(StandardCharsets.UTF_8));
+        boolean first = true;
+        for (Long id : requested){
+            PostPayloadCache.CachedPayload payload = payloads.get(id);
+            if (payload == null){
+                missingIds.add(id.toString());
+                missingIdStrings.add("\"" + id + "\"");
+                continue;
+            }
+            if (!first){
+                body.write(',');
+            }
+            body.writeBytes(payload.json());
+            first = false;
+        }
+        //numbers like the post ids, and as strings like idString
+        body.writeBytes(("],\"missingIds\":" + missingIds + ",\"missingIdStrings\":" + missingIdStrings + "}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body.toByteArray());
+    }
+
     //Get Posts by CategoryId REST API
     @GetMapping("/v1/category/{id}")
-    public ResponseEntity<List<PostDto>> getPostByCategoryId(@PathVariable("id") Long categoryId){
-        List<PostDto> postDto = postService.getPostByCategoryId(categoryId);
+    public ResponseEntity<List<PostDto>> getPostByCategoryId(@PathVariable("id") Long categoryId,
+                                                             @RequestParam(value = "view", defaultValue = AppConstants.DEFAULT_VIEW, required = false) String view){
+        List<PostDto> postDto = postService.getPostByCategoryId(categoryId, view);
         return ResponseEntity.ok(postDto);
     }
 
@@ -0,0 +1,26 @@
+package com.springboot.blog.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//last event version handed out per aggregate; the row stays locked until the publishing transaction ends,
+//so the versions of one aggregate follow the order its transactions commit in
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "aggregate_sequences")
+public class AggregateSequence {
+
+    //aggregate type and id, e.g. post:42
+    @Id
+    @Column(name = "aggregate_key", length = 64)
+    private String aggregateKey;
+
+    @Column(name = "last_version", nullable = false)
+    private long lastVersion;
+}
@@ -4,23 +4,30 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 
 @Entity
-@Table(name = "comments")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "comments")
+//comments are hash partitioned on post_id (db/comments-partitioning.sql); MySQL forbids foreign keys there
+@Table(name = "comments", indexes = @Index(name = "idx_comments_post_id", columnList = "post_id"))
 public class Comment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private long id;
     private String name;
     private String email;
     private String body;
 
+    @Version
+    private long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "post_id", nullable = false)
+    @JoinColumn(name = "post_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Post post;
 }
@@ -2,6 +2,8 @@ package com.springboot.blog.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -12,12 +14,13 @@ import java.util.Set;
 @NoArgsConstructor
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts")
 @Table(
         name = "posts", uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})}
 )
 public class Post {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private long id;
     @Column(name = "title", nullable = false)
     private String title;
@@ -26,10 +29,27 @@ public class Post {
     @Column(name = "content", nullable = false)
     private String content;
 
+    @Version
+    private long version;
+
+    //maintained by PostCounterAggregator, entity updates never write them back
+    @Column(name = "comment_count", nullable = false, updatable = false, columnDefinition = "bigint not null default 0")
+    private long commentCount;
+    @Column(name = "view_count", nullable = false, updatable = false, columnDefinition = "bigint not null default 0")
+    private long viewCount;
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts.comments")
     private Set<Comment> comments = new HashSet<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
+
+    @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "posts.tags")
+    @JoinTable(name = "posts_tags",
+            joinColumns = @JoinColumn(name = "post_id"),
+            inverseJoinColumns = @JoinColumn(name = "tag_id"))
+    private Set<Tag> tags = new HashSet<>();
 }
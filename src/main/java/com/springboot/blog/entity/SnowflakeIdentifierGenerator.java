@@ -0,0 +1,29 @@
+package com.springboot.blog.entity;
+
+import com.springboot.blog.utils.SnowflakeIdGenerator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+
+public class SnowflakeIdentifierGenerator implements IdentifierGenerator {
+
+    //set through spring.jpa.properties, every instance writing to the same database needs its own value
+    public static final String NODE_ID_SETTING = "app.snowflake.node-id";
+
+    private final SnowflakeIdGenerator generator;
+
+    public SnowflakeIdentifierGenerator(SnowflakeId config, Member member, CustomIdGeneratorCreationContext context) {
+        String nodeId = context.getServiceRegistry().getService(ConfigurationService.class)
+                .getSetting(NODE_ID_SETTING, StandardConverters.STRING);
+        this.generator = SnowflakeIdGenerator.forNode(SnowflakeIdGenerator.parseNodeId(nodeId));
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return generator.nextId();
+    }
+}
@@ -0,0 +1,30 @@
+package com.springboot.blog.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+//tags are only ever inserted
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "tags")
+@Table(name = "tags")
+public class Tag {
+
+    @Id
+    @SnowflakeId
+    private long id;
+
+    //stored trimmed and lower-cased
+    @Column(name = "name", nullable = false, unique = true, length = 50)
+    private String name;
+}
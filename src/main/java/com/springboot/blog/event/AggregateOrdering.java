@@ -0,0 +1,156 @@
+package com.springboot.blog.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+//puts the events of each aggregate back in version order on the bus consumer thread. After-commit hooks of different
+//transactions race to the bus, so version 6 may arrive before 5; it is held until 5 arrives. When 5 does not show up
+//within reorder-millis (its live delivery was dropped), the missing versions are read from the outbox
+class AggregateOrdering {
+
+    private static final Logger logger = LoggerFactory.getLogger(AggregateOrdering.class);
+
+    static final long NOTHING_HELD = -1L;
+    //outbox reads for one gap before it is given up on
+    private static final int MAX_LOADS = 3;
+
+    //loads the committed events of an aggregate with afterVersion < version < beforeVersion, in version order
+    interface MissingEvents {
+        List<DomainEvent> load(String aggregateType, long aggregateId, long afterVersion, long beforeVersion);
+    }
+
+    private final long reorderNanos;
+    private final MissingEvents missingEvents;
+    //last version delivered per aggregate, bounded; an aggregate not seen for long starts over with its next event
+    private final Map<String, Long> delivered;
+    private final Map<String, Held> held = new HashMap<>();
+
+    AggregateOrdering(long reorderMillis, int maxAggregates, MissingEvents missingEvents) {
+        this.reorderNanos = TimeUnit.MILLISECONDS.toNanos(reorderMillis);
+        this.missingEvents = missingEvents;
+        this.delivered = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxAggregates && !held.containsKey(eldest.getKey());
+            }
+        };
+    }
+
+    //the events that may be delivered now, in order; the rest is held
+    List<DomainEvent> order(List<DomainEvent> events, long nowNanos){
+        List<DomainEvent> ready = new ArrayList<>(events.size());
+        for (DomainEvent event : events){
+            accept(event, nowNanos, ready);
+        }
+        releaseOverdue(nowNanos, ready);
+        return ready;
+    }
+
+    //when the oldest held event is due, NOTHING_HELD if none is
+    long heldUntilNanos(){
+        long until = NOTHING_HELD;
+        for (Held waiting : held.values()){
+            long due = waiting.since + reorderNanos;
+            if (until == NOTHING_HELD || due - until < 0){
+                until = due;
+            }
+        }
+        return until;
+    }
+
+    //on shutdown: whatever is held goes out as is
+    List<DomainEvent> releaseAll(){
+        List<DomainEvent> ready = new ArrayList<>();
+        held.values().forEach(waiting -> ready.addAll(waiting.events.values()));
+        held.clear();
+        return ready;
+    }
+
+    private void accept(DomainEvent event, long nowNanos, List<DomainEvent> ready){
+        String key = event.aggregateKey();
+        Long last = delivered.get(key);
+        if (last != null && event.aggregateVersion() <= last){
+            //already delivered from the outbox while it was missing
+            return;
+        }
+        if (last == null || event.aggregateVersion() == last + 1){
+            ready.add(event);
+            delivered.put(key, event.aggregateVersion());
+            releaseFollowing(key, ready);
+            return;
+        }
+        held.computeIfAbsent(key, k -> new Held(nowNanos)).events.put(event.aggregateVersion(), event);
+    }
+
+    //held events that became next in line
+    private void releaseFollowing(String key, List<DomainEvent> ready){
+        Held waiting = held.get(key);
+        if (waiting == null){
+            return;
+        }
+        long last = delivered.get(key);
+        while (!waiting.events.isEmpty() && waiting.events.firstKey() == last + 1){
+            last = waiting.events.firstKey();
+            ready.add(waiting.events.pollFirstEntry().getValue());
+        }
+        delivered.put(key, last);
+        if (waiting.events.isEmpty()){
+            held.remove(key);
+        }
+    }
+
+    private void releaseOverdue(long nowNanos, List<DomainEvent> ready){
+        List<Map.Entry<String, Held>> overdue = new ArrayList<>();
+        for (Map.Entry<String, Held> entry : held.entrySet()){
+            if (nowNanos - entry.getValue().since >= reorderNanos){
+                overdue.add(entry);
+            }
+        }
+        for (Map.Entry<String, Held> entry : overdue){
+            String key = entry.getKey();
+            Held waiting = entry.getValue();
+            DomainEvent first = waiting.events.firstEntry().getValue();
+            long last = delivered.computeIfAbsent(key, k -> first.aggregateVersion() - 1);
+            try {
+                //added to what is held, not instead of it: a short read must not lose events that already arrived
+                for (DomainEvent event : missingEvents.load(first.aggregateType(), first.aggregateId(), last, waiting.events.lastKey() + 1)){
+                    waiting.events.putIfAbsent(event.aggregateVersion(), event);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not load missing events of {} after version {}", key, last, e);
+            }
+            releaseFollowing(key, ready);
+            if (!held.containsKey(key)){
+                continue;
+            }
+            if (++waiting.loads < MAX_LOADS){
+                //the outbox did not have the gap yet, try again after another reorder window
+                waiting.since = nowNanos;
+                continue;
+            }
+            //the missing versions are gone for good (purged), deliver the rest in order with the gap
+            logger.warn("Versions of {} after {} are missing from the outbox, delivering with a gap", key, delivered.get(key));
+            held.remove(key);
+            ready.addAll(waiting.events.values());
+            delivered.put(key, waiting.events.lastKey());
+        }
+    }
+
+    private static class Held {
+        private long since;
+        private int loads;
+        private final TreeMap<Long, DomainEvent> events = new TreeMap<>();
+
+        private Held(long since) {
+            this.since = since;
+        }
+    }
+}
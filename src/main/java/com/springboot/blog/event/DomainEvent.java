@@ -0,0 +1,33 @@
+package com.springboot.blog.event;
+
+import com.springboot.blog.entity.OutboxEvent;
+
+import java.time.Instant;
+
+//a committed change as stored in the outbox; payload is the JSON written with the change.
+//aggregateVersion counts the events of one aggregate without gaps, in the order their transactions committed
+public record DomainEvent(long id, String aggregateType, long aggregateId, long aggregateVersion, String type,
+                          String payload, Instant occurredAt) {
+
+    public static final String POST = "post";
+
+    public static final String POST_CREATED = "PostCreated";
+    public static final String POST_UPDATED = "PostUpdated";
+    public static final String POST_DELETED = "PostDeleted";
+    public static final String COMMENT_CREATED = "CommentCreated";
+    public static final String COMMENT_UPDATED = "CommentUpdated";
+    public static final String COMMENT_DELETED = "CommentDeleted";
+
+    public static DomainEvent from(OutboxEvent outboxEvent){
+        return new DomainEvent(outboxEvent.getId(), outboxEvent.getAggregateType(), outboxEvent.getAggregateId(),
+                outboxEvent.getAggregateVersion(), outboxEvent.getEventType(), outboxEvent.getPayload(), outboxEvent.getCreatedAt());
+    }
+
+    public static String aggregateKey(String aggregateType, long aggregateId){
+        return aggregateType + ":" + aggregateId;
+    }
+
+    public String aggregateKey(){
+        return aggregateKey(aggregateType, aggregateId);
+    }
+}
@@ -0,0 +1,222 @@
+package com.springboot.blog.event;
+
+import com.springboot.blog.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+//in-process bus between the after-commit hooks (many producers) and one consumer thread that delivers batches
+//to the subscribers; the consumer puts the events of each aggregate in version order, which is their commit order,
+//and sleeps while the ring is empty
+@Component
+public class DomainEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(DomainEventBus.class);
+
+    //bounded multi-producer ring, each slot carries the sequence it is ready for so producers never lock
+    private final AtomicReferenceArray<DomainEvent> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final int batchSize;
+    private final long publishTimeoutNanos;
+    private final int retentionDays;
+    private final AggregateOrdering ordering;
+
+    private List<DomainEventSubscriber> subscribers;
+    private OutboxEventRepository outboxEventRepository;
+    private TransactionTemplate primaryRead;
+    private volatile Thread consumer;
+    private volatile boolean running;
+    //set by the consumer before it parks, producers only unpark it then
+    private volatile boolean consumerWaiting;
+
+    public DomainEventBus(@Lazy List<DomainEventSubscriber> subscribers, OutboxEventRepository outboxEventRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${app.events.ring-size:4096}") int ringSize,
+                          @Value("${app.events.batch-size:256}") int batchSize,
+                          @Value("${app.events.publish-timeout-millis:50}") long publishTimeoutMillis,
+                          @Value("${app.events.retention-days:7}") int retentionDays,
+                          @Value("${app.events.reorder-millis:200}") long reorderMillis,
+                          @Value("${app.events.ordered-aggregates:100000}") int orderedAggregates) {
+        int capacity = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++){
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.batchSize = batchSize;
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMillis);
+        this.retentionDays = retentionDays;
+        this.ordering = new AggregateOrdering(reorderMillis, orderedAggregates, this::loadVersions);
+        this.subscribers = subscribers;
+        this.outboxEventRepository = outboxEventRepository;
+        //not read-only, so replica routing keeps these reads on the primary: a lagging replica would return a
+        //short list, and a version missing from it would look like a gap the outbox cannot fill
+        this.primaryRead = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(){
+        running = true;
+        Thread thread = new Thread(this::consume, "domain-event-bus");
+        thread.setDaemon(true);
+        consumer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = consumer;
+        if (thread != null){
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void publish(DomainEvent event){
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        while (!tryPublish(event)){
+            if (System.nanoTime() - deadline > 0){
+                //the consumer is far behind; the event stays in the outbox, the next event of its aggregate brings it
+                //back and stream subscribers catch up through replay
+                dropped.incrementAndGet();
+                logger.warn("Domain event bus full, dropped live delivery of event {}", event.id());
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        if (consumerWaiting){
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private boolean tryPublish(DomainEvent event){
+        while (true){
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference < 0){
+                return false;
+            }
+            if (difference == 0 && tail.compareAndSet(position, position + 1)){
+                slots.set(index, event);
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    private int drainTo(List<DomainEvent> batch){
+        int drained = 0;
+        while (drained < batchSize){
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1){
+                break;
+            }
+            batch.add(slots.get(index));
+            slots.set(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    private void consume(){
+        List<DomainEvent> batch = new ArrayList<>(batchSize);
+        while (running || tail.get() != head){
+            drainTo(batch);
+            List<DomainEvent> events = ordering.order(batch, System.nanoTime());
+            batch.clear();
+            if (!events.isEmpty()){
+                deliver(subscribers, events);
+            } else if (tail.get() == head){
+                awaitEvents(ordering.heldUntilNanos());
+            } else {
+                //a producer claimed a slot and is about to fill it
+                Thread.onSpinWait();
+            }
+        }
+        List<DomainEvent> held = ordering.releaseAll();
+        if (!held.isEmpty()){
+            deliver(subscribers, held);
+        }
+    }
+
+    //parks until a producer publishes, or until the oldest held event is due
+    private void awaitEvents(long untilNanos){
+        consumerWaiting = true;
+        try {
+            //re-checked after announcing the wait, a producer that published before it was seen here
+            if (running && tail.get() == head){
+                if (untilNanos == AggregateOrdering.NOTHING_HELD){
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, untilNanos - System.nanoTime());
+                }
+            }
+        } finally {
+            consumerWaiting = false;
+        }
+    }
+
+    private void deliver(List<DomainEventSubscriber> targets, List<DomainEvent> events){
+        for (DomainEventSubscriber subscriber : targets){
+            try {
+                subscriber.onEvents(events);
+            } catch (RuntimeException ex){
+                logger.error("Domain event subscriber {} failed on {} events", subscriber.getClass().getSimpleName(), events.size(), ex);
+            }
+        }
+    }
+
+    //the stored events of one aggregate after a version, oldest first, at most limit of them; lets a subscriber that
+    //was away catch up (a reconnecting comment stream). Versions follow commit order, so no event can commit behind it
+    public List<DomainEvent> replay(String aggregateType, long aggregateId, long afterVersion, int limit){
+        return primaryRead.execute(status -> outboxEventRepository
+                .findByAggregateTypeAndAggregateIdAndAggregateVersionGreaterThanOrderByAggregateVersionAsc(
+                        aggregateType, aggregateId, afterVersion, PageRequest.of(0, limit))
+                .stream().map(DomainEvent::from).toList());
+    }
+
+    private List<DomainEvent> loadVersions(String aggregateType, long aggregateId, long afterVersion, long beforeVersion){
+        return replay(aggregateType, aggregateId, afterVersion, (int) Math.min(beforeVersion - afterVersion - 1, Integer.MAX_VALUE));
+    }
+
+    @Scheduled(cron = "${app.events.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purge(){
+        int purged = outboxEventRepository.deleteOlderThan(Instant.now().minus(Duration.ofDays(retentionDays)));
+        logger.info("Purged {} outbox events older than {} days", purged, retentionDays);
+    }
+
+    public long getDroppedCount(){
+        return dropped.get();
+    }
+}
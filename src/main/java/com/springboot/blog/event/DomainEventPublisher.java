@@ -0,0 +1,90 @@
+package com.springboot.blog.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.entity.OutboxEvent;
+import com.springboot.blog.repository.AggregateSequenceRepository;
+import com.springboot.blog.repository.OutboxEventRepository;
+import com.springboot.blog.utils.TransactionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+//writes the event to the outbox inside the caller's transaction and hands it to the bus once that commits
+@Component
+public class DomainEventPublisher {
+
+    private OutboxEventRepository outboxEventRepository;
+    private AggregateSequenceRepository aggregateSequenceRepository;
+    private DomainEventBus domainEventBus;
+    private ObjectMapper objectMapper;
+
+    public DomainEventPublisher(OutboxEventRepository outboxEventRepository, AggregateSequenceRepository aggregateSequenceRepository,
+                                DomainEventBus domainEventBus, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.aggregateSequenceRepository = aggregateSequenceRepository;
+        this.domainEventBus = domainEventBus;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, long aggregateId, String eventType, Object payload){
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setAggregateType(aggregateType);
+        outboxEvent.setAggregateId(aggregateId);
+        //locks the aggregate's sequence row until this transaction ends, concurrent writers of the aggregate queue up here
+        aggregateSequenceRepository.increment(DomainEvent.aggregateKey(aggregateType, aggregateId));
+        outboxEvent.setAggregateVersion(aggregateSequenceRepository.lastIncremented());
+        outboxEvent.setEventType(eventType);
+        outboxEvent.setPayload(toJson(payload));
+        outboxEvent.setCreatedAt(Instant.now());
+
+        DomainEvent event = DomainEvent.from(outboxEventRepository.save(outboxEvent));
+        TransactionUtils.afterCommit(() -> domainEventBus.publish(event));
+    }
+
+    //events of one type for many aggregates, e.g. a batch of ingested comments: one sequence update per aggregate
+    //reserves the versions of all its events, and the outbox rows go in with one insert. Each list is in version order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> void publishAll(String aggregateType, String eventType, Map<Long, List<T>> payloadsByAggregate){
+        Instant now = Instant.now();
+        List<OutboxEvent> outboxEvents = new ArrayList<>();
+        payloadsByAggregate.forEach((aggregateId, payloads) -> {
+            if (payloads.isEmpty()){
+                return;
+            }
+            aggregateSequenceRepository.reserve(DomainEvent.aggregateKey(aggregateType, aggregateId), payloads.size());
+            long version = aggregateSequenceRepository.lastIncremented() - payloads.size();
+            for (T payload : payloads){
+                OutboxEvent outboxEvent = new OutboxEvent();
+                outboxEvent.setAggregateType(aggregateType);
+                outboxEvent.setAggregateId(aggregateId);
+                outboxEvent.setAggregateVersion(++version);
+                outboxEvent.setEventType(eventType);
+                outboxEvent.setPayload(toJson(payload));
+                outboxEvent.setCreatedAt(now);
+                outboxEvents.add(outboxEvent);
+            }
+        });
+        if (outboxEvents.isEmpty()){
+            return;
+        }
+
+        outboxEventRepository.insertAll(outboxEvents);
+        List<DomainEvent> events = outboxEvents.stream().map(DomainEvent::from).toList();
+        TransactionUtils.afterCommit(() -> events.forEach(domainEventBus::publish));
+    }
+
+    private String toJson(Object payload){
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex){
+            throw new IllegalArgumentException("Event payload is not serializable", ex);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.springboot.blog.event;
+
+import java.util.List;
+
+//receives committed events in batches on the bus consumer thread, so implementations must not block for long
+public interface DomainEventSubscriber {
+
+    void onEvents(List<DomainEvent> events);
+}
@@ -2,6 +2,7 @@ package com.springboot.blog.exception;
 
 import org.springframework.http.HttpStatus;
 
+//thrown for expected client errors, so no stack trace is captured
 public class BlogAPIException extends RuntimeException{
 
     private HttpStatus status;
@@ -17,12 +18,13 @@ public class BlogAPIException extends RuntimeException{
     }
 
     public BlogAPIException(HttpStatus status, String message) {
+        super(null, null, false, false);
         this.status = status;
         this.message = message;
     }
 
     public BlogAPIException(String message, HttpStatus status, String message1) {
-        super(message);
+        super(message, null, false, false);
         this.status = status;
         this.message = message1;
     }
@@ -3,6 +3,7 @@ package com.springboot.blog.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+//a missing resource is normal control flow, so no stack trace is captured and the message is only built when asked for
 @ResponseStatus(value = HttpStatus.NOT_FOUND)
 public class ResourceNotFoundException extends RuntimeException {
 
@@ -11,12 +12,17 @@ public class ResourceNotFoundException extends RuntimeException {
     private long fieldValue;
 
     public ResourceNotFoundException(String resourceName, String fieldName, long fieldValue) {
-        super(String.format("%s not found with %s: %s", resourceName, fieldName, fieldValue));
+        super(null, null, false, false);
         this.resourceName = resourceName;
         this.fieldName = fieldName;
         this.fieldValue = fieldValue;
     }
 
+    @Override
+    public String getMessage() {
+        return resourceName + " not found with " + fieldName + ": " + fieldValue;
+    }
+
     public String getResourceName() {
         return resourceName;
     }
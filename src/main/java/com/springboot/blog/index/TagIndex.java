@@ -0,0 +1,305 @@
+package com.springboot.blog.index;
+
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.payload.PostTag;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//in-memory tag -> posts index: every post gets a dense ordinal and each tag a BitSet over the ordinals,
+//so AND/OR over tags is a word-wise bitmap operation instead of a join over posts_tags.
+//Changes from other nodes and the periodic reconcile are re-read on one background thread; requests arriving
+//meanwhile are coalesced into the next read, and a read that raced with a local write is retried instead of applied
+@Component
+public class TagIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagIndex.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, BitSet> postsByTag = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Map<Long, Set<String>> tagsByPost = new HashMap<>();
+    //ordinals of removed posts are reused so the bitmaps stay dense
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private long[] postIds = new long[1024];
+    private int nextOrdinal;
+    //bumped under the write lock by every change, a database read taken before a change is not applied
+    private long generation;
+
+    private final Set<Long> pendingReloads = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tag-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PostRepository postRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private CacheCoherenceManager cacheCoherenceManager;
+
+    public TagIndex(PostRepository postRepository, PlatformTransactionManager transactionManager,
+                    CacheCoherenceManager cacheCoherenceManager) {
+        this.postRepository = postRepository;
+        this.readOnlyTransaction = TransactionUtils.readOnly(transactionManager);
+        this.cacheCoherenceManager = cacheCoherenceManager;
+        //tag changes on other nodes are re-read from the database; other post changes do not concern the index
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.POST_TAGS,
+                postId -> requestReload(Long.parseLong(postId)), this::requestRebuild);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild(){
+        long startGeneration = generation();
+        List<PostTag> rows = readOnlyTransaction.execute(status -> postRepository.findAllPostTags());
+        Map<Long, Set<String>> tags = new HashMap<>();
+        for (PostTag row : rows){
+            tags.computeIfAbsent(row.getPostId(), id -> new HashSet<>()).add(row.getTagName());
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (generation != startGeneration){
+                requestRebuild();
+                return;
+            }
+            generation++;
+            postsByTag.clear();
+            ordinals.clear();
+            tagsByPost.clear();
+            freeOrdinals.clear();
+            nextOrdinal = 0;
+            tags.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //catches what the coherence messages missed, e.g. while this node was partitioned off
+    @Scheduled(fixedDelayString = "${app.tag-index.reconcile-millis:300000}",
+            initialDelayString = "${app.tag-index.reconcile-millis:300000}")
+    public void reconcile(){
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        loader.shutdownNow();
+    }
+
+    //local writes, applied once the post change commits; peers are told only when the tags actually changed
+    public void update(long postId, Set<String> tags){
+        Set<String> copy = Set.copyOf(tags);
+        if (!copy.equals(tagsOf(postId))){
+            cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_TAGS, postId);
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                generation++;
+                delete(postId);
+                put(postId, copy);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void remove(long postId){
+        if (!tagsOf(postId).isEmpty()){
+            cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_TAGS, postId);
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                generation++;
+                delete(postId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void rebuildAfterCommit(){
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_TAGS, null);
+        TransactionUtils.afterCommit(this::requestRebuild);
+    }
+
+    //ids of the posts carrying all (or any) of the tags, in ordinal order
+    public List<Long> find(Collection<String> tags, boolean matchAll){
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (String tag : tags){
+                BitSet posts = postsByTag.get(tag);
+                if (posts == null){
+                    if (matchAll){
+                        return List.of();
+                    }
+                    continue;
+                }
+                if (result == null){
+                    result = (BitSet) posts.clone();
+                } else if (matchAll){
+                    result.and(posts);
+                } else {
+                    result.or(posts);
+                }
+            }
+            if (result == null){
+                return List.of();
+            }
+
+            List<Long> ids = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)){
+                ids.add(postIds[ordinal]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<String> tagsOf(long postId){
+        lock.readLock().lock();
+        try {
+            return tagsByPost.getOrDefault(postId, Set.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long generation(){
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void requestReload(long postId){
+        pendingReloads.add(postId);
+        schedule();
+    }
+
+    private void requestRebuild(){
+        rebuildPending.set(true);
+        schedule();
+    }
+
+    private void schedule(){
+        if (!scheduled.compareAndSet(false, true)){
+            return;
+        }
+        try {
+            loader.execute(this::load);
+        } catch (RejectedExecutionException ex){
+            //shutting down
+            scheduled.set(false);
+        }
+    }
+
+    //requests made from here on schedule another run, so none is lost between draining and clearing the flag
+    private void load(){
+        scheduled.set(false);
+        try {
+            if (rebuildPending.getAndSet(false)){
+                pendingReloads.clear();
+                rebuild();
+                return;
+            }
+            List<Long> postIds = new ArrayList<>(pendingReloads);
+            if (!postIds.isEmpty()){
+                pendingReloads.removeAll(postIds);
+                reload(postIds);
+            }
+        } catch (RuntimeException ex){
+            //the next change or the reconcile tries again
+            logger.warn("Could not refresh the tag index", ex);
+        }
+    }
+
+    private void reload(List<Long> postIds){
+        long startGeneration = generation();
+        List<PostTag> rows = readOnlyTransaction.execute(status -> postRepository.findPostTagsByPostIdIn(postIds));
+        Map<Long, Set<String>> tags = new HashMap<>();
+        postIds.forEach(postId -> tags.put(postId, new HashSet<>()));
+        rows.forEach(row -> tags.get(row.getPostId()).add(row.getTagName()));
+
+        lock.writeLock().lock();
+        try {
+            if (generation != startGeneration){
+                postIds.forEach(this::requestReload);
+                return;
+            }
+            generation++;
+            tags.forEach((postId, postTags) -> {
+                delete(postId);
+                put(postId, postTags);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //callers hold the write lock
+    private void put(long postId, Set<String> tags){
+        if (tags.isEmpty()){
+            return;
+        }
+        int ordinal = freeOrdinals.isEmpty() ? nextOrdinal++ : freeOrdinals.pop();
+        if (ordinal >= postIds.length){
+            postIds = Arrays.copyOf(postIds, postIds.length * 2);
+        }
+        postIds[ordinal] = postId;
+        ordinals.put(postId, ordinal);
+        tagsByPost.put(postId, tags);
+        for (String tag : tags){
+            postsByTag.computeIfAbsent(tag, name -> new BitSet()).set(ordinal);
+        }
+    }
+
+    private void delete(long postId){
+        Integer ordinal = ordinals.remove(postId);
+        if (ordinal == null){
+            return;
+        }
+        for (String tag : tagsByPost.remove(postId)){
+            BitSet posts = postsByTag.get(tag);
+            posts.clear(ordinal);
+            if (posts.isEmpty()){
+                postsByTag.remove(tag);
+            }
+        }
+        freeOrdinals.push(ordinal);
+    }
+}
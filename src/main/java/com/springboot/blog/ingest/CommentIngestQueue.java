@@ -0,0 +1,390 @@
+package com.springboot.blog.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.cache.CompactPostStore;
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.cache.SecondLevelCache;
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.event.DomainEventPublisher;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.stats.PostCounterAggregator;
+import com.springboot.blog.stats.TrendingPostsTracker;
+import com.springboot.blog.utils.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+//optional comment write path for hot posts: a comment is acknowledged once it is fsynced to the journal, striped
+//writer threads then insert the comments of many requests in one JDBC batch and one transaction, with one
+//version reservation per post and one outbox insert for the batch's events.
+//The comments go in as a batch of single-row statements, not one multi-row insert, because replay needs each row's count.
+//Until then the comment is served from an in-memory overlay, so its author sees it on this node right away
+@Component
+public class CommentIngestQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentIngestQueue.class);
+
+    //insert ignore makes replaying the journal after a crash idempotent. Side effects follow the per-row update counts,
+    //which the driver only reports with its default rewriteBatchedStatements=false.
+    //comments has no post_id foreign key (it is partitioned), so the row is only inserted while the post exists
+    static final String INSERT_SQL = "insert ignore into comments (id, name, email, body, version, post_id) " +
+            "select ?, ?, ?, ?, 0, id from posts where id = ?";
+
+    //the length of the comments columns; anything longer would be acknowledged and then refused by the insert
+    static final int MAX_COLUMN_LENGTH = 255;
+
+    private volatile boolean enabled;
+    private final int batchSize;
+    private final long ackTimeoutMillis;
+    private final long knownPostMillis;
+    private final SnowflakeIdGenerator idGenerator;
+    private final CommentJournal journal;
+    private final List<BlockingQueue<JournaledComment>> stripes = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    //post ids recently seen to exist, so a burst on one post does not look the post up for every comment
+    private final Map<Long, Long> knownPosts = new ConcurrentHashMap<>();
+    //accepted but not yet in the database, by post
+    private final Map<Long, Map<Long, CommentDto>> overlay = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean running;
+
+    private PostRepository postRepository;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PostPayloadCache postPayloadCache;
+    private CompactPostStore compactPostStore;
+    private SecondLevelCache secondLevelCache;
+    private CacheCoherenceManager cacheCoherenceManager;
+    private PostCounterAggregator postCounterAggregator;
+    private TrendingPostsTracker trendingPostsTracker;
+    private DomainEventPublisher domainEventPublisher;
+
+    public CommentIngestQueue(@Value("${app.comment-ingest.enabled:false}") boolean enabled,
+                              @Value("${app.comment-ingest.writers:4}") int writerCount,
+                              @Value("${app.comment-ingest.batch-size:500}") int batchSize,
+                              @Value("${app.comment-ingest.ack-timeout-millis:2000}") long ackTimeoutMillis,
+                              @Value("${app.comment-ingest.known-post-millis:10000}") long knownPostMillis,
+                              @Value("${app.comment-ingest.journal:data/comment-ingest.journal}") String journalPath,
+                              @Value("${app.comment-ingest.journal-truncate-bytes:1048576}") long journalTruncateBytes,
+                              @Value("${spring.jpa.properties.app.snowflake.node-id:}") String nodeId,
+                              ObjectMapper objectMapper, PostRepository postRepository, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate, PostPayloadCache postPayloadCache,
+                              CacheCoherenceManager cacheCoherenceManager, PostCounterAggregator postCounterAggregator,
+                              TrendingPostsTracker trendingPostsTracker, DomainEventPublisher domainEventPublisher,
+                              CompactPostStore compactPostStore, SecondLevelCache secondLevelCache) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.knownPostMillis = knownPostMillis;
+        this.idGenerator = SnowflakeIdGenerator.forNode(SnowflakeIdGenerator.parseNodeId(nodeId));
+        this.journal = new CommentJournal(Path.of(journalPath), objectMapper, journalTruncateBytes);
+        for (int i = 0; i < writerCount; i++){
+            stripes.add(new LinkedBlockingQueue<>());
+        }
+        this.postRepository = postRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.postPayloadCache = postPayloadCache;
+        this.compactPostStore = compactPostStore;
+        this.secondLevelCache = secondLevelCache;
+        this.cacheCoherenceManager = cacheCoherenceManager;
+        this.postCounterAggregator = postCounterAggregator;
+        this.trendingPostsTracker = trendingPostsTracker;
+        this.domainEventPublisher = domainEventPublisher;
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled){
+            return;
+        }
+        List<JournaledComment> recovered;
+        try {
+            recovered = journal.recover();
+        } catch (IOException | RuntimeException e) {
+            //appending to a journal that was not replayed could truncate it, so the queue stays off and comments
+            //take the direct path until the journal is readable again
+            logger.error("Comment journal could not be read, comment ingestion is disabled", e);
+            enabled = false;
+            return;
+        }
+        List<JournaledComment> unwritten = replay(recovered);
+        journal.open();
+        if (!recovered.isEmpty() && unwritten.isEmpty()){
+            journal.truncate();
+        }
+
+        running = true;
+        for (int i = 0; i < stripes.size(); i++){
+            BlockingQueue<JournaledComment> stripe = stripes.get(i);
+            Thread writer = new Thread(() -> writeLoop(stripe), "comment-writer-" + i);
+            writer.setDaemon(true);
+            writers.add(writer);
+            writer.start();
+        }
+        //still journaled, the writers keep retrying them like any other accepted comment
+        journal.recovered(unwritten.size());
+        unwritten.forEach(this::enqueue);
+    }
+
+    //writes what the previous run acknowledged, returns what the database could not take right now
+    private List<JournaledComment> replay(List<JournaledComment> recovered){
+        if (recovered.isEmpty()){
+            return List.of();
+        }
+        logger.info("Replaying {} journaled comments", recovered.size());
+        int[] done = {0};
+        try {
+            for (int from = 0; from < recovered.size(); from += batchSize){
+                writeOrSplit(recovered, from, Math.min(from + batchSize, recovered.size()), done, false);
+            }
+            return List.of();
+        } catch (RuntimeException e) {
+            logger.error("Replaying journaled comments failed, the writers retry the remaining {}", recovered.size() - done[0], e);
+            return List.copyOf(recovered.subList(done[0], recovered.size()));
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        for (Thread writer : writers){
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        journal.close();
+    }
+
+    public CommentDto submit(long postId, CommentDto commentDto){
+        requireFits("name", commentDto.getName());
+        requireFits("email", commentDto.getEmail());
+        requireFits("body", commentDto.getBody());
+        requirePost(postId);
+
+        JournaledComment comment = new JournaledComment(idGenerator.nextId(), postId,
+                commentDto.getName(), commentDto.getEmail(), commentDto.getBody());
+        //the append finishes even when this request gives up on it; whichever side decides first wins, so the
+        //comment is either queued and acknowledged or tombstoned and reported as failed, never half of each
+        AtomicBoolean decided = new AtomicBoolean();
+        CompletableFuture<Void> queued = journal.append(comment).thenRun(() -> {
+            if (decided.compareAndSet(false, true)){
+                enqueue(comment);
+            } else {
+                journal.abandon(comment.id());
+            }
+        });
+        try {
+            queued.get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            giveUp(decided);
+        } catch (TimeoutException e) {
+            giveUp(decided);
+        } catch (ExecutionException e) {
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Comment could not be accepted, retry later");
+        }
+        return comment.toDto();
+    }
+
+    //fails the request unless the comment was queued in the meantime
+    private static void giveUp(AtomicBoolean decided){
+        if (decided.compareAndSet(false, true)){
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Comment could not be accepted, retry later");
+        }
+    }
+
+    private void enqueue(JournaledComment comment){
+        overlay.computeIfAbsent(comment.postId(), id -> new ConcurrentHashMap<>()).put(comment.id(), comment.toDto());
+        //one post always lands on the same writer, so its comments are inserted in arrival order
+        stripes.get((int) Math.floorMod(comment.postId(), (long) stripes.size())).add(comment);
+    }
+
+    //accepted comments of the post that the database may not have yet
+    public List<CommentDto> pendingComments(long postId){
+        Map<Long, CommentDto> pending = overlay.get(postId);
+        return pending == null ? List.of() : List.copyOf(pending.values());
+    }
+
+    public CommentDto pendingComment(long postId, long commentId){
+        Map<Long, CommentDto> pending = overlay.get(postId);
+        return pending == null ? null : pending.get(commentId);
+    }
+
+    public Map<String, Object> metrics(){
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("pending", overlay.values().stream().mapToInt(Map::size).sum());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+
+    private static void requireFits(String field, String value){
+        if (value != null && value.length() > MAX_COLUMN_LENGTH){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment " + field + " must be at most " + MAX_COLUMN_LENGTH + " characters");
+        }
+    }
+
+    private void requirePost(long postId){
+        long now = System.currentTimeMillis();
+        Long knownSince = knownPosts.get(postId);
+        if (knownSince != null && now - knownSince < knownPostMillis){
+            return;
+        }
+        if (!postRepository.existsById(postId)){
+            throw new ResourceNotFoundException("post", "id", postId);
+        }
+        knownPosts.put(postId, now);
+    }
+
+    private void writeLoop(BlockingQueue<JournaledComment> stripe){
+        List<JournaledComment> batch = new ArrayList<>(batchSize);
+        while (running || !stripe.isEmpty()){
+            try {
+                JournaledComment first = stripe.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null){
+                    continue;
+                }
+                batch.add(first);
+                stripe.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    //retries what failed for a passing reason (database down, deadlock), comments the database refuses are dropped
+    private void writeWithRetry(List<JournaledComment> batch) throws InterruptedException {
+        long backoffMillis = 100;
+        int[] done = {0};
+        while (done[0] < batch.size()){
+            try {
+                writeOrSplit(batch, done[0], batch.size(), done, true);
+            } catch (RuntimeException e) {
+                //the comments stay journaled and in the overlay, a restart replays them if this never succeeds
+                logger.error("Writing {} comments failed, retrying in {} ms", batch.size() - done[0], backoffMillis, e);
+                if (!running){
+                    return;
+                }
+                Thread.sleep(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, 5000);
+            }
+        }
+    }
+
+    //a part the database refuses is halved until the refused comments stand alone, so one bad row never holds up
+    //the others. Parts are written in order, done[0] is the end of what is written or dropped so far
+    private void writeOrSplit(List<JournaledComment> batch, int from, int to, int[] done, boolean journaled){
+        List<JournaledComment> part = batch.subList(from, to);
+        try {
+            write(part);
+            if (journaled){
+                journal.committed(part.size());
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (part.size() == 1){
+                reject(part.get(0), e, journaled);
+            } else {
+                int middle = (from + to) >>> 1;
+                writeOrSplit(batch, from, middle, done, journaled);
+                writeOrSplit(batch, middle, to, done, journaled);
+            }
+        }
+        done[0] = to;
+    }
+
+    //retrying cannot help, the comment is tombstoned so a restart does not try it again either
+    private void reject(JournaledComment comment, DataIntegrityViolationException e, boolean journaled){
+        rejected.incrementAndGet();
+        logger.error("Dropping comment {} on post {} that was acknowledged but refused by the database: {}",
+                comment.id(), comment.postId(), e.getMostSpecificCause().getMessage());
+        if (journaled){
+            journal.abandon(comment.id());
+        }
+        removeFromOverlay(comment);
+    }
+
+    private void write(List<JournaledComment> batch){
+        transactionTemplate.executeWithoutResult(status -> {
+            //posts deleted since the comment was accepted would leave orphans, there is no foreign key on comments
+            Set<Long> postIds = batch.stream().map(JournaledComment::postId).collect(Collectors.toSet());
+            Set<Long> existing = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                    "select id from posts where id in (:ids)", new MapSqlParameterSource("ids", postIds), Long.class));
+            List<JournaledComment> comments = batch.stream().filter(comment -> existing.contains(comment.postId())).toList();
+
+            int[] inserted = jdbcTemplate.batchUpdate(INSERT_SQL, comments.stream()
+                    .map(comment -> new Object[]{comment.id(), comment.name(), comment.email(), comment.body(), comment.postId()})
+                    .toList());
+
+            Map<Long, List<CommentDto>> created = new LinkedHashMap<>();
+            for (int i = 0; i < comments.size(); i++){
+                //a replayed comment that is already in the table was ignored, its side effects already happened
+                if (inserted[i] != 1){
+                    continue;
+                }
+                JournaledComment comment = comments.get(i);
+                postCounterAggregator.commentAdded(comment.postId());
+                trendingPostsTracker.commentAdded(comment.postId());
+                created.computeIfAbsent(comment.postId(), postId -> new ArrayList<>()).add(comment.toDto());
+            }
+            domainEventPublisher.publishAll(DomainEvent.POST, DomainEvent.COMMENT_CREATED, created);
+            for (Long postId : postIds){
+                postPayloadCache.evict(postId);
+                compactPostStore.evict(postId);
+                //the rows bypassed Hibernate, so its cached Post.comments would miss them
+                secondLevelCache.evictPost(postId);
+                cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, postId);
+            }
+        });
+
+        batch.forEach(this::removeFromOverlay);
+    }
+
+    private void removeFromOverlay(JournaledComment comment){
+        overlay.computeIfPresent(comment.postId(), (postId, pending) -> {
+            pending.remove(comment.id());
+            return pending.isEmpty() ? null : pending;
+        });
+    }
+}
@@ -0,0 +1,185 @@
+package com.springboot.blog.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//append-only log of accepted comments with group commit: one thread writes whatever queued up since the last
+//fsync and completes all of those appends together, so an fsync is shared by every comment that arrived meanwhile
+class CommentJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentJournal.class);
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final long truncateBytes;
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    //appended but not yet committed to the database, the file may only be truncated at zero
+    private final AtomicLong outstanding = new AtomicLong();
+
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean running;
+
+    CommentJournal(Path path, ObjectMapper objectMapper, long truncateBytes) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.truncateBytes = truncateBytes;
+    }
+
+    private static final String ABANDONED = "abandoned";
+
+    //comments the previous run acknowledged but may not have written to the database
+    List<JournaledComment> recover() throws IOException {
+        List<JournaledComment> comments = new ArrayList<>();
+        if (!Files.exists(path)){
+            return comments;
+        }
+        Set<Long> abandoned = new HashSet<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)){
+            if (line.isBlank()){
+                continue;
+            }
+            try {
+                JsonNode entry = objectMapper.readTree(line);
+                if (entry.has(ABANDONED)){
+                    abandoned.add(entry.get(ABANDONED).asLong());
+                } else {
+                    comments.add(objectMapper.treeToValue(entry, JournaledComment.class));
+                }
+            } catch (IOException e) {
+                //a torn last line was never acknowledged
+                logger.warn("Skipping unreadable comment journal entry");
+            }
+        }
+        comments.removeIf(comment -> abandoned.contains(comment.id()));
+        return comments;
+    }
+
+    void open() throws IOException {
+        if (path.getParent() != null){
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        running = true;
+        writer = new Thread(this::writeLoop, "comment-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    CompletableFuture<Void> append(JournaledComment comment){
+        return appendLine(comment);
+    }
+
+    //for an appended comment whose client was already told it failed: a tombstone keeps recovery from inserting it,
+    //and the comment stops holding back truncation once the tombstone is durable
+    void abandon(long commentId){
+        appendLine(Map.of(ABANDONED, commentId)).whenComplete((ignored, e) -> {
+            if (e != null){
+                logger.error("Could not journal abandoned comment {}, a restart will insert it", commentId);
+            }
+            //a failed write already released the tombstone itself
+            committed(e == null ? 2 : 1);
+        });
+    }
+
+    private CompletableFuture<Void> appendLine(Object entry){
+        byte[] line;
+        try {
+            line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        outstanding.incrementAndGet();
+        Append append = new Append(line, new CompletableFuture<>());
+        appends.add(append);
+        return append.done();
+    }
+
+    //recovered comments that were not written at startup and stay in the file until they are
+    void recovered(int count){
+        outstanding.addAndGet(count);
+    }
+
+    void committed(int count){
+        outstanding.addAndGet(-count);
+    }
+
+    private void writeLoop(){
+        List<Append> group = new ArrayList<>();
+        while (running || !appends.isEmpty()){
+            try {
+                Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null){
+                    truncateIfDrained();
+                    continue;
+                }
+                group.add(first);
+                appends.drainTo(group);
+
+                ByteBuffer[] buffers = group.stream().map(append -> ByteBuffer.wrap(append.line())).toArray(ByteBuffer[]::new);
+                long remaining = group.stream().mapToLong(append -> append.line().length).sum();
+                while (remaining > 0){
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(false);
+                group.forEach(append -> append.done().complete(null));
+            } catch (IOException e) {
+                logger.error("Comment journal write failed", e);
+                outstanding.addAndGet(-group.size());
+                group.forEach(append -> append.done().completeExceptionally(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    //everything in the file is in the database, start over so recovery stays short
+    private void truncateIfDrained() throws IOException {
+        if (outstanding.get() == 0 && appends.isEmpty() && channel.size() > truncateBytes){
+            channel.truncate(0);
+            channel.force(true);
+        }
+    }
+
+    void truncate() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    void close() throws IOException, InterruptedException {
+        running = false;
+        if (writer != null){
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        if (channel != null){
+            channel.close();
+        }
+    }
+
+    private record Append(byte[] line, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.springboot.blog.ingest;
+
+import com.springboot.blog.payload.CommentDto;
+
+//a comment accepted by the ingestion queue, as written to the journal
+public record JournaledComment(long id, long postId, String name, String email, String body) {
+
+    public CommentDto toDto(){
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(id);
+        commentDto.setName(name);
+        commentDto.setEmail(email);
+        commentDto.setBody(body);
+        return commentDto;
+    }
+}
@@ -1,5 +1,7 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -17,4 +19,11 @@ public class CategoryDto {
     private String name;
     @Schema(description = "Category Description")
     private String description;
+
+    @Schema(description = "Category Id as a string", accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getIdString(){
+        return id == null ? null : id.toString();
+    }
 }
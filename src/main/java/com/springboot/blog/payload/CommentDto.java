@@ -1,5 +1,6 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
@@ -13,13 +14,25 @@ public class CommentDto {
 
     @Schema(description = "Comment Name")
     @NotEmpty(message = "Name should not be null or empty")
+    @Size(max = 255, message = "Name must be at most 255 characters")
     private String name;
     @Schema(description = "Comment Email")
     @NotEmpty(message = "Email should not be null or empty")
     @Email
+    @Size(max = 255, message = "Email must be at most 255 characters")
     private String email;
     @Schema(description = "Comment Body")
     @NotEmpty
-    @Size(min = 10, message = "Comment Body must be minimum 10 characters")
+    @Size(min = 10, max = 255, message = "Comment Body must be between 10 and 255 characters")
     private String body;
+
+    @Schema(description = "Comment Version, also sent as ETag and expected back in If-Match")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @Schema(description = "Comment Id as a string", accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getIdString(){
+        return Long.toString(id);
+    }
 }
@@ -1,6 +1,7 @@
 package com.springboot.blog.payload;
 
-import com.springboot.blog.entity.Comment;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
@@ -34,11 +35,13 @@ public class PostDto {
     @Schema(
             description = "Blog Post Content"
     )
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String content;
 
     @Schema(
             description = "Blog Post Comments"
     )
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<CommentDto> comments;
 
     @Schema(
@@ -46,4 +49,48 @@ public class PostDto {
     )
     private Long categoryId;
 
+    @Schema(
+            description = "Blog Post Tags, left unchanged on update when omitted"
+    )
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Set<String> tags;
+
+    @Schema(
+            description = "Blog Post Version, also sent as ETag and expected back in If-Match"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @Schema(
+            description = "Blog Post Comment Count, updated in the background"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long commentCount;
+
+    @Schema(
+            description = "Blog Post View Count, updated in the background"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long viewCount;
+
+    //snowflake ids exceed 2^53, JavaScript clients read these instead of the numbers, which they would round
+    @Schema(
+            description = "Blog Post Id as a string",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getIdString(){
+        return Long.toString(id);
+    }
+
+    @Schema(
+            description = "Blog Post CategoryId as a string",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getCategoryIdString(){
+        return categoryId == null ? null : categoryId.toString();
+    }
+
 }
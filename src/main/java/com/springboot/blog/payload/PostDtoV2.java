@@ -1,5 +1,6 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
@@ -48,4 +49,31 @@ public class PostDtoV2 {
 
     private List<String> tags;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long commentCount;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long viewCount;
+
+    @Schema(
+            description = "Blog Post Id as a string",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getIdString(){
+        return Long.toString(id);
+    }
+
+    @Schema(
+            description = "Blog Post CategoryId as a string",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getCategoryIdString(){
+        return categoryId == null ? null : categoryId.toString();
+    }
+
 }
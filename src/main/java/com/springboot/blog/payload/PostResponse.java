@@ -1,5 +1,6 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,13 +10,17 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PostResponse {
 
     private List<PostDto> content;
     private int pageNo;
     private int pageSize;
-    private long totalElements;
-    private int totalPages;
+    //left out when the listing was fetched without counting
+    private Long totalElements;
+    private Integer totalPages;
     private  boolean last;
+    //only set for count=none and count=approximate listings
+    private Boolean hasNext;
 
 }
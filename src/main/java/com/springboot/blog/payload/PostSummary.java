@@ -0,0 +1,17 @@
+package com.springboot.blog.payload;
+
+//lightweight projection of a post used by list views, it never touches content or comments
+public interface PostSummary {
+
+    long getId();
+
+    String getTitle();
+
+    String getDescription();
+
+    Long getCategoryId();
+
+    long getCommentCount();
+
+    long getViewCount();
+}
@@ -0,0 +1,9 @@
+package com.springboot.blog.payload;
+
+//one row of the posts_tags join, used to build the tag index and to fill tags without loading posts
+public interface PostTag {
+
+    long getPostId();
+
+    String getTagName();
+}
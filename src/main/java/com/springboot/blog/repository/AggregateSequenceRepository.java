@@ -0,0 +1,25 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.AggregateSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface AggregateSequenceRepository extends JpaRepository<AggregateSequence, String> {
+
+    //MySQL counter idiom: creates or bumps the row and leaves the new value in last_insert_id() of this connection
+    @Modifying
+    @Query(value = "insert into aggregate_sequences (aggregate_key, last_version) values (:key, last_insert_id(1)) "
+            + "on duplicate key update last_version = last_insert_id(last_version + 1)", nativeQuery = true)
+    int increment(@Param("key") String key);
+
+    //the same for count versions at once, last_insert_id() is then the last of them
+    @Modifying
+    @Query(value = "insert into aggregate_sequences (aggregate_key, last_version) values (:key, last_insert_id(:count)) "
+            + "on duplicate key update last_version = last_insert_id(last_version + :count)", nativeQuery = true)
+    int reserve(@Param("key") String key, @Param("count") int count);
+
+    @Query(value = "select last_insert_id()", nativeQuery = true)
+    long lastIncremented();
+}
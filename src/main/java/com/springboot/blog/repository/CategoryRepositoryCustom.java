@@ -0,0 +1,9 @@
+package com.springboot.blog.repository;
+
+import java.util.Map;
+
+public interface CategoryRepositoryCustom {
+
+    //updates only the given attributes, returns the number of rows changed
+    int patch(long id, Map<String, Object> attributes);
+}
@@ -0,0 +1,28 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.Category;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.Map;
+
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patch(long id, Map<String, Object> attributes) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Category> update = builder.createCriteriaUpdate(Category.class);
+        Root<Category> category = update.from(Category.class);
+
+        attributes.forEach(update::set);
+        update.where(builder.equal(category.get("id"), id));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
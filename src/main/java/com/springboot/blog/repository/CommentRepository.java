@@ -2,11 +2,28 @@ package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     List<Comment> findByPostId(long postId);
 
+    List<Comment> findByPostIdIn(Collection<Long> postIds);
+
+    //single conditional update, returns 0 when the comment is missing, belongs to another post or its version moved on
+    @Modifying
+    @Query("update Comment c set c.name = :name, c.email = :email, c.body = :body, c.version = c.version + 1 " +
+            "where c.id = :commentId and c.post.id = :postId and c.version = :version")
+    int updateIfVersionMatches(@Param("postId") long postId,
+                               @Param("commentId") long commentId,
+                               @Param("version") long version,
+                               @Param("name") String name,
+                               @Param("email") String email,
+                               @Param("body") String body);
+
 }
@@ -0,0 +1,22 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>, OutboxEventRepositoryCustom {
+
+    //replay of one aggregate in version order; ids are taken at insert and may commit out of order, versions may not
+    List<OutboxEvent> findByAggregateTypeAndAggregateIdAndAggregateVersionGreaterThanOrderByAggregateVersionAsc(
+            String aggregateType, long aggregateId, long aggregateVersion, Pageable pageable);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.createdAt < :before")
+    int deleteOlderThan(@Param("before") Instant before);
+}
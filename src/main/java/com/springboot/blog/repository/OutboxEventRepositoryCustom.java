@@ -0,0 +1,11 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxEventRepositoryCustom {
+
+    //inserts all the events with one multi-row statement and sets their generated ids
+    void insertAll(List<OutboxEvent> outboxEvents);
+}
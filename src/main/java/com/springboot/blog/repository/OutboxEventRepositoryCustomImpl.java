@@ -0,0 +1,53 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.OutboxEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+//the ids are IDENTITY, so Hibernate would insert the events one statement at a time
+public class OutboxEventRepositoryCustomImpl implements OutboxEventRepositoryCustom {
+
+    private static final String INSERT_SQL = "insert into outbox_events " +
+            "(aggregate_type, aggregate_id, aggregate_version, event_type, payload, created_at) values ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<OutboxEvent> outboxEvents) {
+        if (outboxEvents.isEmpty()){
+            return;
+        }
+        String sql = INSERT_SQL + String.join(", ", Collections.nCopies(outboxEvents.size(), ROW));
+        //runs on the connection of the surrounding transaction
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)){
+                int parameter = 1;
+                for (OutboxEvent outboxEvent : outboxEvents){
+                    statement.setString(parameter++, outboxEvent.getAggregateType());
+                    statement.setLong(parameter++, outboxEvent.getAggregateId());
+                    statement.setLong(parameter++, outboxEvent.getAggregateVersion());
+                    statement.setString(parameter++, outboxEvent.getEventType());
+                    statement.setString(parameter++, outboxEvent.getPayload());
+                    statement.setTimestamp(parameter++, Timestamp.from(outboxEvent.getCreatedAt()));
+                }
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()){
+                    for (OutboxEvent outboxEvent : outboxEvents){
+                        keys.next();
+                        outboxEvent.setId(keys.getLong(1));
+                    }
+                }
+            }
+        });
+    }
+}
@@ -1,12 +1,88 @@
 package com.springboot.blog.repository;
 
+import com.springboot.blog.cache.SecondLevelCache;
+import com.springboot.blog.entity.Category;
 import com.springboot.blog.entity.Post;
-import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostSummary;
+import com.springboot.blog.payload.PostTag;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface PostRepository extends JpaRepository<Post, Long> {
+public interface PostRepository extends JpaRepository<Post, Long>, PostRepositoryCustom {
 
+    //locks the row before the comments are deleted, so a comment insert selecting the post waits for the outcome
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Post p where p.id = :id")
+    Optional<Post> findForDeleteById(@Param("id") long id);
+
+    //shared lock for adding a comment: comments has no foreign key, so this keeps a concurrent delete from
+    //removing the post before the comment commits (and the delete's cascade then finds the comment)
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select p from Post p where p.id = :id")
+    Optional<Post> findForCommentById(@Param("id") long id);
+
+    //result ids are kept in the query cache, the posts themselves in the posts region
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCache.POSTS_BY_CATEGORY)})
     List<Post> findByCategoryId(Long categoryId);
+
+    //summary projections only select the columns needed by list pages
+    @Query(value = "select p.id as id, p.title as title, p.description as description, p.category.id as categoryId, " +
+            "p.commentCount as commentCount, p.viewCount as viewCount from Post p",
+            countQuery = "select count(p) from Post p")
+    Page<PostSummary> findAllSummaries(Pageable pageable);
+
+    //slices fetch one extra row to know whether a next page exists and never run a count query
+    @Query("select p.id as id, p.title as title, p.description as description, p.category.id as categoryId, " +
+            "p.commentCount as commentCount, p.viewCount as viewCount from Post p")
+    Slice<PostSummary> findSummarySlice(Pageable pageable);
+
+    //full list pages only read the ids here, the posts themselves come from CompactPostStore
+    @Query(value = "select p.id from Post p", countQuery = "select count(p) from Post p")
+    Page<Long> findAllIds(Pageable pageable);
+
+    @Query("select p.id from Post p")
+    Slice<Long> findIdSlice(Pageable pageable);
+
+    @Query("select p.id as id, p.title as title, p.description as description, p.category.id as categoryId, " +
+            "p.commentCount as commentCount, p.viewCount as viewCount from Post p where p.category.id = :categoryId")
+    List<PostSummary> findSummariesByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query("select p.id as id, p.title as title, p.description as description, p.category.id as categoryId, " +
+            "p.commentCount as commentCount, p.viewCount as viewCount from Post p where p.id in :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.id as postId, t.name as tagName from Post p join p.tags t")
+    List<PostTag> findAllPostTags();
+
+    @Query("select p.id as postId, t.name as tagName from Post p join p.tags t where p.id in :ids")
+    List<PostTag> findPostTagsByPostIdIn(@Param("ids") Collection<Long> ids);
+
+    //single conditional update, returns 0 when the post is missing or its version moved on
+    @Modifying
+    @Query("update Post p set p.title = :title, p.description = :description, p.content = :content, p.category = :category, " +
+            "p.version = p.version + 1 where p.id = :id and p.version = :version")
+    int updateIfVersionMatches(@Param("id") long id,
+                               @Param("version") long version,
+                               @Param("title") String title,
+                               @Param("description") String description,
+                               @Param("content") String content,
+                               @Param("category") Category category);
+
+    @Query("select p.version from Post p where p.id = :id")
+    Long findVersionById(@Param("id") long id);
 }
@@ -0,0 +1,9 @@
+package com.springboot.blog.repository;
+
+import java.util.Map;
+
+public interface PostRepositoryCustom {
+
+    //updates only the given attributes and bumps the version, returns the number of rows changed
+    int patch(long id, Map<String, Object> attributes, Long expectedVersion);
+}
@@ -0,0 +1,35 @@
+package com.springboot.blog.repository;
+
+import com.springboot.blog.entity.Post;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.Map;
+
+public class PostRepositoryCustomImpl implements PostRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patch(long id, Map<String, Object> attributes, Long expectedVersion) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Post> update = builder.createCriteriaUpdate(Post.class);
+        Root<Post> post = update.from(Post.class);
+
+        attributes.forEach(update::set);
+        update.set(post.<Long>get("version"), builder.sum(post.<Long>get("version"), 1L));
+
+        Predicate where = builder.equal(post.get("id"), id);
+        if (expectedVersion != null){
+            where = builder.and(where, builder.equal(post.get("version"), expectedVersion));
+        }
+        update.where(where);
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,63 @@
+package com.springboot.blog.security;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//caps requests in flight, the cap shrinks when latency climbs above the target and grows back slowly when it recovers
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final long decreaseCooldownNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final AtomicInteger successesSinceIncrease = new AtomicInteger();
+    private final AtomicLong lastDecrease = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, long targetLatencyMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyMillis * 1_000_000L;
+        this.decreaseCooldownNanos = targetLatencyNanos;
+        this.limit = new AtomicInteger(maxLimit);
+    }
+
+    public boolean tryAcquire(){
+        if (inFlight.incrementAndGet() > limit.get()){
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long latencyNanos, long now){
+        inFlight.decrementAndGet();
+
+        if (latencyNanos > targetLatencyNanos){
+            //multiplicative decrease, at most once per cooldown so one slow burst does not collapse the limit
+            long last = lastDecrease.get();
+            if (now - last >= decreaseCooldownNanos && lastDecrease.compareAndSet(last, now)){
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * 0.9)));
+                successesSinceIncrease.set(0);
+            }
+            return;
+        }
+
+        //additive increase, one slot per limit-worth of fast responses
+        int current = limit.get();
+        if (current < maxLimit && successesSinceIncrease.incrementAndGet() >= current){
+            successesSinceIncrease.set(0);
+            limit.compareAndSet(current, current + 1);
+        }
+    }
+
+    public int getLimit(){
+        return limit.get();
+    }
+
+    public int getInFlight(){
+        return inFlight.get();
+    }
+}
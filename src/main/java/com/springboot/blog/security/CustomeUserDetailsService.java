@@ -1,7 +1,9 @@
 package com.springboot.blog.security;
 
+import com.springboot.blog.cache.CacheCoherenceManager;
 import com.springboot.blog.entity.User;
 import com.springboot.blog.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,7 +11,9 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,12 +21,27 @@ public class CustomeUserDetailsService implements UserDetailsService {
 
     private UserRepository userRepository;
 
-    public CustomeUserDetailsService(UserRepository userRepository) {
+    //every authenticated request resolves its principal, cache them for the coherence staleness bound
+    private final Map<String, CachedPrincipal> principals = new ConcurrentHashMap<>();
+    private final long maxAgeMillis;
+    private final int maxEntries;
+
+    public CustomeUserDetailsService(UserRepository userRepository, CacheCoherenceManager cacheCoherenceManager,
+                                     @Value("${app.principal-cache.max-entries:10000}") int maxEntries) {
         this.userRepository = userRepository;
+        this.maxAgeMillis = cacheCoherenceManager.getMaxStalenessMillis();
+        this.maxEntries = maxEntries;
+        cacheCoherenceManager.registerRegion(CacheCoherenceManager.PRINCIPALS, principals::remove, principals::clear);
     }
 
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        CachedPrincipal cached = principals.get(usernameOrEmail);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() <= maxAgeMillis){
+            //hand out a copy, the authentication manager erases the password of what it gets
+            return org.springframework.security.core.userdetails.User.withUserDetails(cached.userDetails()).build();
+        }
+
         User user = userRepository
                 .findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username or email: "+ usernameOrEmail));
@@ -32,6 +51,14 @@ public class CustomeUserDetailsService implements UserDetailsService {
                 .stream()
                 .map(role -> new SimpleGrantedAuthority(role.getName())).collect(Collectors.toSet());
 
-        return new org.springframework.security.core.userdetails.User(user.getEmail(), user.getPassword(), grantedAuthorities);
+        UserDetails userDetails = new org.springframework.security.core.userdetails.User(user.getEmail(), user.getPassword(), grantedAuthorities);
+        if (principals.size() >= maxEntries){
+            principals.clear();
+        }
+        principals.put(usernameOrEmail, new CachedPrincipal(userDetails, System.currentTimeMillis()));
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).build();
+    }
+
+    private record CachedPrincipal(UserDetails userDetails, long loadedAt) {
     }
 }
@@ -11,11 +11,16 @@ import java.io.IOException;
 
 @Component
 public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
+
+    //set by JwtAuthenticationFilter when the bearer token was rejected
+    public static final String REJECTION_ATTRIBUTE = JwtAuthenticationEntryPoint.class.getName() + ".rejection";
+
     @Override
     public void commence(HttpServletRequest request,
                          HttpServletResponse response,
                          AuthenticationException authException) throws IOException, ServletException {
 
-        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, authException.getMessage());
+        Object rejection = request.getAttribute(REJECTION_ATTRIBUTE);
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, rejection != null ? rejection.toString() : authException.getMessage());
     }
 }
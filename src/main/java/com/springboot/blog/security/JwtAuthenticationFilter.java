@@ -18,6 +18,9 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    //set by RateLimitFilter, which already validated the bearer token to key its buckets
+    public static final String VALIDATION_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".validation";
+
     private JwtTokenProvider jwtTokenProvider;
     private UserDetailsService userDetailsService;
 
@@ -31,15 +34,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        //get JWT token from http request
-        String token = getTokenFromRequest(request);
+        //validate token, a rejected token leaves the request anonymous instead of throwing
+        JwtValidationResult validation = (JwtValidationResult) request.getAttribute(VALIDATION_ATTRIBUTE);
+        if (validation == null){
+            String token = getTokenFromRequest(request);
+            validation = StringUtils.hasText(token) ? jwtTokenProvider.validate(token) : null;
+        }
 
+        if (validation != null && !validation.isValid()){
+            request.setAttribute(JwtAuthenticationEntryPoint.REJECTION_ATTRIBUTE, validation.rejectionReason());
+        }
 
-        //validate token
-        if(StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)){
+        if(validation != null && validation.isValid()){
 
             //get username from token
-            String username =jwtTokenProvider.getUsername(token);
+            String username = validation.username();
 
             //load the User associated with token
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
@@ -61,7 +70,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
 
-    private String getTokenFromRequest(HttpServletRequest request){
+    static String getTokenFromRequest(HttpServletRequest request){
 
         String bearerToken = request.getHeader("Authorization");
 //        System.out.println(bearerToken+"--token");
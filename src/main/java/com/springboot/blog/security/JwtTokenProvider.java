@@ -1,16 +1,17 @@
 package com.springboot.blog.security;
 
-import com.springboot.blog.exception.BlogAPIException;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtTokenProvider {
@@ -21,6 +22,22 @@ public class JwtTokenProvider {
     @Value("${app-jwt-expiration-milliseconds}")
     private long jwtExpirationDate;
 
+    @Value("${app.jwt.max-token-length:2048}")
+    private int maxTokenLength;
+
+    @Value("${app.jwt.rejected-cache-size:4096}")
+    private int rejectedCacheSize;
+
+    @Value("${app.jwt.rejected-cache-millis:300000}")
+    private long rejectedCacheMillis;
+
+    //key and parser are immutable, building them per request was pure overhead
+    private volatile Key key;
+    private volatile JwtParser parser;
+
+    //recently rejected tokens, replaying the same garbage header skips parsing entirely
+    private final Map<String, Rejection> rejectedTokens = new ConcurrentHashMap<>();
+
     //generate jwt Token
     public String generateToken(Authentication authentication){
         String username = authentication.getName();
@@ -40,17 +57,31 @@ public class JwtTokenProvider {
     }
 
     private Key key(){
-        return Keys.hmacShaKeyFor(
-                Decoders.BASE64.decode(jwtSecret)
-        );
+        Key current = key;
+        if (current == null){
+            current = Keys.hmacShaKeyFor(
+                    Decoders.BASE64.decode(jwtSecret)
+            );
+            key = current;
+        }
+        return current;
+    }
+
+    private JwtParser parser(){
+        JwtParser current = parser;
+        if (current == null){
+            current = Jwts.parserBuilder()
+                    .setSigningKey(key())
+                    .build();
+            parser = current;
+        }
+        return current;
     }
 
     //get username from Jwt Token
     public String getUsername(String token){
         //store claims(type) object
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
+        Claims claims = parser()
                 .parseClaimsJws(token)
                 .getBody();
 
@@ -62,20 +93,82 @@ public class JwtTokenProvider {
 
     //validate the jwt token
     public boolean validateToken(String token){
+        return validate(token).isValid();
+    }
+
+    //validates the token and extracts the username in one parse, never throws for a bad token
+    public JwtValidationResult validate(String token){
+        if (token == null || token.isEmpty()){
+            return JwtValidationResult.EMPTY;
+        }
+        if (!isStructurallyValid(token)){
+            return JwtValidationResult.MALFORMED;
+        }
+
+        long now = System.currentTimeMillis();
+        Rejection rejection = rejectedTokens.get(token);
+        if (rejection != null){
+            if (rejection.expiresAt() > now){
+                return rejection.result();
+            }
+            rejectedTokens.remove(token);
+        }
+
+        JwtValidationResult result;
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key())
-                    .build()
-                    .parse(token);
-            return true;
-        }catch (MalformedJwtException e){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid JWT Token");
+            result = JwtValidationResult.valid(parser().parseClaimsJws(token).getBody().getSubject());
         }catch (ExpiredJwtException e){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Expired JWT Token");
+            result = JwtValidationResult.EXPIRED;
         }catch (UnsupportedJwtException e){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Unsupported JWT Token");
-        }catch (IllegalArgumentException e){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "JWT claims string is empty");
+            result = JwtValidationResult.UNSUPPORTED;
+        }catch (SignatureException e){
+            result = JwtValidationResult.BAD_SIGNATURE;
+        }catch (JwtException | IllegalArgumentException e){
+            result = JwtValidationResult.MALFORMED;
+        }
+
+        if (!result.isValid()){
+            remember(token, result, now);
+        }
+        return result;
+    }
+
+    //a signed JWT is three non-empty base64url segments, anything else is rejected without touching the parser
+    private boolean isStructurallyValid(String token){
+        int length = token.length();
+        if (length > maxTokenLength){
+            return false;
         }
+
+        int dots = 0;
+        int segmentLength = 0;
+        for (int i = 0; i < length; i++){
+            char c = token.charAt(i);
+            if (c == '.'){
+                if (segmentLength == 0 || ++dots > 2){
+                    return false;
+                }
+                segmentLength = 0;
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_'){
+                segmentLength++;
+            } else {
+                return false;
+            }
+        }
+        return dots == 2 && segmentLength > 0;
+    }
+
+    private void remember(String token, JwtValidationResult result, long now){
+        if (rejectedTokens.size() >= rejectedCacheSize){
+            rejectedTokens.values().removeIf(rejection -> rejection.expiresAt() <= now);
+            if (rejectedTokens.size() >= rejectedCacheSize){
+                //under a flood of unique tokens the cache cannot help, start over instead of growing
+                rejectedTokens.clear();
+            }
+        }
+        rejectedTokens.put(token, new Rejection(result, now + rejectedCacheMillis));
+    }
+
+    private record Rejection(JwtValidationResult result, long expiresAt) {
     }
 }
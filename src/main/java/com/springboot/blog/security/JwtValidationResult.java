@@ -0,0 +1,23 @@
+package com.springboot.blog.security;
+
+//outcome of checking a bearer token, rejections are shared constants so the reject path allocates nothing
+public record JwtValidationResult(String username, String rejectionReason) {
+
+    public static final JwtValidationResult MALFORMED = rejected("Invalid JWT Token");
+    public static final JwtValidationResult EXPIRED = rejected("Expired JWT Token");
+    public static final JwtValidationResult UNSUPPORTED = rejected("Unsupported JWT Token");
+    public static final JwtValidationResult BAD_SIGNATURE = rejected("Invalid JWT Signature");
+    public static final JwtValidationResult EMPTY = rejected("JWT claims string is empty");
+
+    public static JwtValidationResult valid(String username){
+        return new JwtValidationResult(username, null);
+    }
+
+    private static JwtValidationResult rejected(String reason){
+        return new JwtValidationResult(null, reason);
+    }
+
+    public boolean isValid(){
+        return rejectionReason == null;
+    }
+}
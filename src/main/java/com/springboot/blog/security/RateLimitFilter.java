@@ -0,0 +1,199 @@
+package com.springboot.blog.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.payload.ErrorDetails;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+//runs ahead of JwtAuthenticationFilter so abusive clients are turned away before any token parsing or DB work
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxKeys;
+    private final long sweepNanos;
+    private final List<Rule> rules;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    //guarded by sweepLock, read without it to skip the lock while a sweep is not due
+    private volatile long lastSweepNanos;
+
+    public RateLimitFilter(ObjectMapper objectMapper, JwtTokenProvider jwtTokenProvider,
+                           @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.rate-limit.max-keys:100000}") int maxKeys,
+                           @Value("${app.rate-limit.sweep-millis:60000}") long sweepMillis,
+                           @Value("${app.rate-limit.auth.capacity:10}") long authCapacity,
+                           @Value("${app.rate-limit.auth.per-second:0.2}") double authPerSecond,
+                           @Value("${app.rate-limit.comments.capacity:20}") long commentCapacity,
+                           @Value("${app.rate-limit.comments.per-second:1}") double commentPerSecond,
+                           @Value("${app.rate-limit.reads.capacity:200}") long readCapacity,
+                           @Value("${app.rate-limit.reads.per-second:50}") double readPerSecond,
+                           @Value("${app.concurrency-limit.min:8}") int minConcurrency,
+                           @Value("${app.concurrency-limit.max:100}") int maxConcurrency,
+                           @Value("${app.concurrency-limit.target-latency-millis:250}") long targetLatencyMillis) {
+        this.objectMapper = objectMapper;
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+        this.sweepNanos = TimeUnit.MILLISECONDS.toNanos(sweepMillis);
+        this.lastSweepNanos = System.nanoTime() - sweepNanos;
+        //first matching rule wins
+        this.rules = List.of(
+                new Rule("auth", HttpMethod.POST, "/api/auth/**", authCapacity, authPerSecond),
+                new Rule("comments", HttpMethod.POST, "/api/posts/*/comments", commentCapacity, commentPerSecond),
+                new Rule("reads", HttpMethod.GET, "/api/**", readCapacity, readPerSecond),
+                //batch reads by POST draw from the same per-client read bucket
+                new Rule("reads", HttpMethod.POST, "/api/posts/v1/batch", readCapacity, readPerSecond));
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(minConcurrency, maxConcurrency, targetLatencyMillis);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        long now = System.nanoTime();
+
+        Rule rule = matchRule(request);
+        if (rule != null){
+            long waitNanos = bucketFor(rule, request, now).tryAcquire(now);
+            if (waitNanos > 0){
+                reject(request, response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, slow down", waitNanos);
+                return;
+            }
+        }
+
+        //shed load instead of queueing on the DB pool once latency climbs
+        if (!concurrencyLimiter.tryAcquire()){
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, retry shortly", TimeUnit.SECONDS.toNanos(1));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long end = System.nanoTime();
+            concurrencyLimiter.release(end - now, end);
+        }
+    }
+
+    //full buckets hold no information, dropping them keeps the key space bounded
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-millis:60000}")
+    public void sweepIdleBuckets(){
+        sweepLock.lock();
+        try {
+            sweep(System.nanoTime());
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private void sweep(long now){
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        lastSweepNanos = now;
+    }
+
+    int bucketCount(){
+        return buckets.size();
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    private Rule matchRule(HttpServletRequest request){
+        String path = request.getRequestURI();
+        for (Rule rule : rules){
+            if (rule.method().matches(request.getMethod()) && PATH_MATCHER.match(rule.pattern(), path)){
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private TokenBucket bucketFor(Rule rule, HttpServletRequest request, long now){
+        String key = rule.name() + ":" + clientKey(request);
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null){
+            return bucket;
+        }
+
+        if (buckets.size() >= maxKeys){
+            //a flood of new keys would otherwise walk the whole map once per request: one early sweep per interval
+            //at most, by whoever gets the lock, and nobody waits for it
+            if (now - lastSweepNanos >= sweepNanos && sweepLock.tryLock()){
+                try {
+                    if (now - lastSweepNanos >= sweepNanos){
+                        sweep(now);
+                    }
+                } finally {
+                    sweepLock.unlock();
+                }
+            }
+            if (buckets.size() >= maxKeys){
+                //key space is exhausted, new clients share one bucket per rule until the sweep frees room
+                return buckets.computeIfAbsent(rule.name() + ":overflow", k -> rule.newBucket(now));
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> rule.newBucket(now));
+    }
+
+    //authenticated clients are limited per user, everyone else per client address. Behind the load balancer the
+    //address is the one Tomcat resolved from X-Forwarded-For (server.forward-headers-strategy), not the balancer's.
+    //Verifying the token signature is CPU only, the result is handed on so JwtAuthenticationFilter does not parse again
+    private String clientKey(HttpServletRequest request){
+        String token = JwtAuthenticationFilter.getTokenFromRequest(request);
+        if (StringUtils.hasText(token)){
+            JwtValidationResult validation = jwtTokenProvider.validate(token);
+            request.setAttribute(JwtAuthenticationFilter.VALIDATION_ATTRIBUTE, validation);
+            if (validation.isValid()){
+                return "user:" + validation.username();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                        String message, long retryAfterNanos) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorDetails(new Date(), message, "uri=" + request.getRequestURI()));
+    }
+
+    private record Rule(String name, HttpMethod method, String pattern, long capacity, double perSecond) {
+
+        TokenBucket newBucket(long now){
+            return new TokenBucket(capacity, perSecond, now);
+        }
+    }
+}
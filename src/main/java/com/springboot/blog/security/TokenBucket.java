@@ -0,0 +1,37 @@
+package com.springboot.blog.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//lock-free token bucket in its GCRA form: the whole state is the theoretical arrival time of the next request
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(long capacity, double tokensPerSecond, long now) {
+        this.nanosPerToken = (long) (1_000_000_000L / tokensPerSecond);
+        this.burstNanos = capacity * nanosPerToken;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    //returns 0 when a token was taken, otherwise the nanos until one is available
+    public long tryAcquire(long now){
+        while (true){
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + nanosPerToken;
+            long wait = next - now - burstNanos;
+            if (wait > 0){
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)){
+                return 0;
+            }
+        }
+    }
+
+    //a full bucket carries no state worth keeping
+    public boolean isFull(long now){
+        return theoreticalArrival.get() <= now;
+    }
+}
@@ -3,6 +3,7 @@ package com.springboot.blog.service;
 import com.springboot.blog.payload.CategoryDto;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CategoryService {
 
@@ -14,5 +15,7 @@ public interface CategoryService {
 
     CategoryDto updateCategory(CategoryDto categoryDto, Long categoryId);
 
+    void patchCategory(Map<String, Object> patch, Long categoryId);
+
     void deleteCategory(Long categoryId);
 }
@@ -12,7 +12,7 @@ public interface CommentService {
 
     CommentDto getCommentById(long postId, long commentId);
 
-    CommentDto updateComment(long postId, long commentId, CommentDto commentDto);
+    CommentDto updateComment(long postId, long commentId, CommentDto commentDto, Long expectedVersion);
 
     void deleteComment(long postId, long commentId);
 }
@@ -3,19 +3,28 @@ package com.springboot.blog.service;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface PostService {
 
     PostDto createPost(PostDto postDto);
 
-    PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir);
+    PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir, String view, String countMode,
+                             List<String> tags, String tagMatch);
 
     PostDto getPostById(long id);
 
-    PostDto updatePost(PostDto postDto, long id);
+    PostDto updatePost(PostDto postDto, long id, Long expectedVersion);
+
+    long patchPost(Map<String, Object> patch, long id, Long expectedVersion);
 
     void deletePost(long id);
 
-    List<PostDto> getPostByCategoryId(Long categoryId);
+    List<PostDto> getPostByCategoryId(Long categoryId, String view);
+
+    List<PostDto> getTrendingPosts(int limit);
+
+    Map<Long, PostDto> getPostsByIds(Collection<Long> ids);
 }
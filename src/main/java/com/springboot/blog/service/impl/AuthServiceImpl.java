@@ -1,5 +1,6 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.CacheCoherenceManager;
 import com.springboot.blog.config.SecurityConfig;
 import com.springboot.blog.entity.Role;
 import com.springboot.blog.entity.User;
@@ -18,6 +19,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -30,14 +32,17 @@ public class AuthServiceImpl implements AuthService {
     private RoleRepository roleRepository;
     private PasswordEncoder passwordEncoder;
     private JwtTokenProvider jwtTokenProvider;
+    private CacheCoherenceManager cacheCoherenceManager;
 
     public AuthServiceImpl(AuthenticationManager authenticationManager, UserRepository userRepository,
-                           RoleRepository roleRepository, PasswordEncoder passwordEncoder, JwtTokenProvider jwtTokenProvider) {
+                           RoleRepository roleRepository, PasswordEncoder passwordEncoder, JwtTokenProvider jwtTokenProvider,
+                           CacheCoherenceManager cacheCoherenceManager) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.cacheCoherenceManager = cacheCoherenceManager;
     }
 
     @Override
@@ -52,6 +57,7 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
+    @Transactional
     public String register(RegisterDto registerDto) {
         if (userRepository.existsByUsername(registerDto.getUsername())){
             throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Username is already exists...");
@@ -72,6 +78,9 @@ public class AuthServiceImpl implements AuthService {
         user.setRoles(roles);
 
         userRepository.save(user);
+        //principals are cached under whatever the client logs in with
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.PRINCIPALS, user.getUsername());
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.PRINCIPALS, user.getEmail());
 
         return "User registered successfully...";
     }
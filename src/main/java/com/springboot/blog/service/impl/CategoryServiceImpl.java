@@ -1,14 +1,28 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.cache.CompactPostStore;
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.cache.SingleFlight;
 import com.springboot.blog.entity.Category;
+import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.index.TagIndex;
 import com.springboot.blog.payload.CategoryDto;
 import com.springboot.blog.repository.CategoryRepository;
 import com.springboot.blog.service.CategoryService;
+import com.springboot.blog.utils.TransactionUtils;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,13 +30,29 @@ public class CategoryServiceImpl implements CategoryService {
 
     private CategoryRepository categoryRepository;
     private ModelMapper modelMapper;
+    private PostPayloadCache postPayloadCache;
+    private CompactPostStore compactPostStore;
+    private CacheCoherenceManager cacheCoherenceManager;
+    private TransactionTemplate readOnlyTransaction;
+    private SingleFlight<Long, CategoryDto> categoryLoads;
+    private TagIndex tagIndex;
 
-    public CategoryServiceImpl(CategoryRepository categoryRepository, ModelMapper modelMapper) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, ModelMapper modelMapper, PostPayloadCache postPayloadCache,
+                               CacheCoherenceManager cacheCoherenceManager, PlatformTransactionManager transactionManager,
+                               @Value("${app.single-flight.timeout-millis:3000}") long singleFlightTimeoutMillis,
+                               TagIndex tagIndex, CompactPostStore compactPostStore) {
         this.categoryRepository = categoryRepository;
         this.modelMapper = modelMapper;
+        this.postPayloadCache = postPayloadCache;
+        this.compactPostStore = compactPostStore;
+        this.cacheCoherenceManager = cacheCoherenceManager;
+        this.readOnlyTransaction = TransactionUtils.readOnly(transactionManager);
+        this.categoryLoads = new SingleFlight<>(singleFlightTimeoutMillis);
+        this.tagIndex = tagIndex;
     }
 
     @Override
+    @Transactional
     public CategoryDto addCategory(CategoryDto categoryDto) {
 
         Category category = modelMapper.map(categoryDto, Category.class);
@@ -33,29 +63,77 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public CategoryDto getCategory(Long categoryId) {
-        Category category =categoryRepository.findById(categoryId).orElseThrow(()-> new ResourceNotFoundException("Category","id",categoryId));
-        return modelMapper.map(category,CategoryDto.class);
+        return categoryLoads.execute(categoryId, () -> readOnlyTransaction.execute(status -> {
+            Category category =categoryRepository.findById(categoryId).orElseThrow(()-> new ResourceNotFoundException("Category","id",categoryId));
+            return modelMapper.map(category,CategoryDto.class);
+        }));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CategoryDto> getAllCategories() {
         List<Category> categories = categoryRepository.findAll();
         return categories.stream().map((category)-> modelMapper.map(category, CategoryDto.class)).collect(Collectors.toList());
     }
 
     @Override
+    @Transactional
     public CategoryDto updateCategory(CategoryDto categoryDto, Long categoryId) {
         Category category = categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
         category.setId(categoryId);
         category.setName(categoryDto.getName());
         category.setDescription(categoryDto.getDescription());
         Category updatedCategory = categoryRepository.save(category);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.CATEGORIES, categoryId);
         return modelMapper.map(updatedCategory, CategoryDto.class);
     }
 
     @Override
+    @Transactional
+    public void patchCategory(Map<String, Object> patch, Long categoryId) {
+        Map<String, Object> attributes = new HashMap<>();
+        for (Map.Entry<String, Object> field : patch.entrySet()){
+            switch (field.getKey()){
+                case "name" -> {
+                    if (!(field.getValue() instanceof String name) || name.isBlank()){
+                        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Category Name should not be empty");
+                    }
+                    attributes.put("name", name);
+                }
+                case "description" -> {
+                    //merge patch null clears the description
+                    if (field.getValue() != null && !(field.getValue() instanceof String)){
+                        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Category Description must be a string");
+                    }
+                    attributes.put("description", field.getValue());
+                }
+                default -> throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Field '" + field.getKey() + "' cannot be patched");
+            }
+        }
+
+        if (attributes.isEmpty()){
+            if (!categoryRepository.existsById(categoryId)){
+                throw new ResourceNotFoundException("Category", "id", categoryId);
+            }
+            return;
+        }
+
+        if (categoryRepository.patch(categoryId, attributes) == 0){
+            throw new ResourceNotFoundException("Category", "id", categoryId);
+        }
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.CATEGORIES, categoryId);
+    }
+
+    @Override
+    @Transactional
     public void deleteCategory(Long categoryId) {
         Category category = categoryRepository.findById(categoryId).orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
         categoryRepository.delete(category);
+        //deleting a category cascades to its posts
+        postPayloadCache.evictAll();
+        compactPostStore.evictAll();
+        tagIndex.rebuildAfterCommit();
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.CATEGORIES, categoryId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, null);
     }
 }
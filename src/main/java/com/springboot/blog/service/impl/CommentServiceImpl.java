@@ -1,20 +1,36 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.cache.CompactPostStore;
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.cache.SingleFlight;
 import com.springboot.blog.entity.Comment;
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.event.DomainEventPublisher;
 import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.ingest.CommentIngestQueue;
 import com.springboot.blog.payload.CommentDto;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.repository.CommentRepository;
 import com.springboot.blog.repository.PostRepository;
 import com.springboot.blog.service.CommentService;
+import com.springboot.blog.stats.PostCounterAggregator;
+import com.springboot.blog.stats.TrendingPostsTracker;
+import com.springboot.blog.utils.TransactionUtils;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,45 +39,106 @@ public class CommentServiceImpl implements CommentService {
     private CommentRepository commentRepository ;
     private PostRepository postRepository;
     private ModelMapper modelMapper;
-
-    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, ModelMapper modelMapper) {
+    private PostPayloadCache postPayloadCache;
+    private CompactPostStore compactPostStore;
+    private PostCounterAggregator postCounterAggregator;
+    private TrendingPostsTracker trendingPostsTracker;
+    private DomainEventPublisher domainEventPublisher;
+    private CacheCoherenceManager cacheCoherenceManager;
+    private CommentIngestQueue commentIngestQueue;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private SingleFlight<Long, List<CommentDto>> commentListLoads;
+
+    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, ModelMapper modelMapper,
+                              PostPayloadCache postPayloadCache, PostCounterAggregator postCounterAggregator,
+                              TrendingPostsTracker trendingPostsTracker, DomainEventPublisher domainEventPublisher,
+                              CacheCoherenceManager cacheCoherenceManager, CommentIngestQueue commentIngestQueue,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${app.single-flight.timeout-millis:3000}") long singleFlightTimeoutMillis,
+                              CompactPostStore compactPostStore) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
         this.modelMapper = modelMapper;
+        this.postPayloadCache = postPayloadCache;
+        this.compactPostStore = compactPostStore;
+        this.postCounterAggregator = postCounterAggregator;
+        this.trendingPostsTracker = trendingPostsTracker;
+        this.domainEventPublisher = domainEventPublisher;
+        this.cacheCoherenceManager = cacheCoherenceManager;
+        this.commentIngestQueue = commentIngestQueue;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = TransactionUtils.readOnly(transactionTemplate.getTransactionManager());
+        this.commentListLoads = new SingleFlight<>(singleFlightTimeoutMillis);
     }
 
     @Override
     public CommentDto createComment(long postId, CommentDto commentDto) {
+        //queued comments are acknowledged once journaled, no transaction or connection is held while waiting
+        if (commentIngestQueue.isEnabled()){
+            return commentIngestQueue.submit(postId, commentDto);
+        }
+        return transactionTemplate.execute(status -> createCommentNow(postId, commentDto));
+    }
+
+    private CommentDto createCommentNow(long postId, CommentDto commentDto) {
 
         Comment comment = mapToEntity(commentDto);
 
-        //fetching the post entity by id
-        Post post = postRepository.findById(postId).orElseThrow(() ->  new ResourceNotFoundException("post", "id", postId));
+        //fetching the post entity by id, share locked until the comment commits
+        Post post = postRepository.findForCommentById(postId).orElseThrow(() ->  new ResourceNotFoundException("post", "id", postId));
 
         comment.setPost(post);
 
         //comment entity to DB
         Comment newComment = commentRepository.save(comment);
-
-        return mapToDto(newComment);
+        //post payloads embed their comments
+        postPayloadCache.evict(postId);
+        compactPostStore.evict(postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, postId);
+        postCounterAggregator.commentAdded(postId);
+        trendingPostsTracker.commentAdded(postId);
+
+        CommentDto createdComment = mapToDto(newComment);
+        domainEventPublisher.publish(DomainEvent.POST, postId, DomainEvent.COMMENT_CREATED, createdComment);
+        return createdComment;
     }
 
     @Override
     public List<CommentDto> getCommentsByPostId(long postId) {
-        //fetch list of comments by postId
-        List<Comment> comments = commentRepository.findByPostId(postId);
-
-        //convert list of comment to list of comment Dtos
-        return comments.stream().map(comment -> mapToDto(comment)).collect(Collectors.toList());
+        //concurrent pollers of one post share a single query, the shared list is copied before it is extended
+        List<CommentDto> commentDtos = new ArrayList<>(commentListLoads.execute(postId, () -> readOnlyTransaction.execute(status -> {
+            //fetch list of comments by postId
+            List<Comment> comments = commentRepository.findByPostId(postId);
+
+            //convert list of comment to list of comment Dtos
+            return comments.stream().map(comment -> mapToDto(comment)).collect(Collectors.toList());
+        })));
+
+        //read-your-write: add queued comments the writers have not inserted yet
+        List<CommentDto> pending = commentIngestQueue.pendingComments(postId);
+        if (!pending.isEmpty()){
+            Set<Long> stored = commentDtos.stream().map(CommentDto::getId).collect(Collectors.toSet());
+            pending.stream().filter(comment -> !stored.contains(comment.getId())).forEach(commentDtos::add);
+        }
+        return commentDtos;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CommentDto getCommentById(long postId, long commentId) {
         //fetching the post by postId
         Post post = postRepository.findById(postId).orElseThrow(() -> new ResourceNotFoundException("post","id",postId));
 
         //fetching comment by commentId
-        Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new ResourceNotFoundException("comment","id",commentId));
+        Comment comment = commentRepository.findById(commentId).orElse(null);
+        if (comment == null){
+            CommentDto pending = commentIngestQueue.pendingComment(postId, commentId);
+            if (pending == null){
+                throw new ResourceNotFoundException("comment","id",commentId);
+            }
+            return pending;
+        }
 
         long id = comment.getPost().getId();
         if (!Objects.equals(id, post.getId())){
@@ -72,7 +149,11 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public CommentDto updateComment(long postId, long commentId, CommentDto commentDto) {
+    @Transactional
+    public CommentDto updateComment(long postId, long commentId, CommentDto commentDto, Long expectedVersion) {
+        if (expectedVersion != null){
+            return updateCommentIfVersionMatches(postId, commentId, commentDto, expectedVersion);
+        }
 
         //fetch post by using postId
         Post post = postRepository.findById(postId).orElseThrow(() -> new ResourceNotFoundException("post","id",postId));
@@ -87,12 +168,42 @@ public class CommentServiceImpl implements CommentService {
         comment.setEmail(commentDto.getEmail());
         comment.setBody(commentDto.getBody());
 
-        Comment updatedComment = commentRepository.save(comment);
+        Comment updatedComment = commentRepository.saveAndFlush(comment);
+        postPayloadCache.evict(postId);
+        compactPostStore.evict(postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.COMMENTS, commentId);
 
-        return mapToDto(updatedComment);
+        CommentDto updatedCommentDto = mapToDto(updatedComment);
+        domainEventPublisher.publish(DomainEvent.POST, postId, DomainEvent.COMMENT_UPDATED, updatedCommentDto);
+        return updatedCommentDto;
+    }
+
+    //client sent If-Match, so skip the pre-read and let the version check in the UPDATE detect conflicts
+    private CommentDto updateCommentIfVersionMatches(long postId, long commentId, CommentDto commentDto, long expectedVersion){
+        int updated = commentRepository.updateIfVersionMatches(postId, commentId, expectedVersion,
+                commentDto.getName(), commentDto.getEmail(), commentDto.getBody());
+        if (updated == 0){
+            //only the failure path reads, to tell a missing comment from a conflicting edit
+            Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new ResourceNotFoundException("comment","id",commentId));
+            if (!Objects.equals(comment.getPost().getId(), postId)){
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
+            }
+            throw new BlogAPIException(HttpStatus.PRECONDITION_FAILED, "Comment was modified by someone else, reload it and retry");
+        }
+        postPayloadCache.evict(postId);
+        compactPostStore.evict(postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.COMMENTS, commentId);
+
+        commentDto.setId(commentId);
+        commentDto.setVersion(expectedVersion + 1);
+        domainEventPublisher.publish(DomainEvent.POST, postId, DomainEvent.COMMENT_UPDATED, commentDto);
+        return commentDto;
     }
 
     @Override
+    @Transactional
     public void deleteComment(long postId, long commentId) {
 
         //fetch post by using postId
@@ -105,6 +216,12 @@ public class CommentServiceImpl implements CommentService {
             throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
         }
         commentRepository.delete(comment);
+        postPayloadCache.evict(postId);
+        compactPostStore.evict(postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, postId);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.COMMENTS, commentId);
+        postCounterAggregator.commentRemoved(postId);
+        domainEventPublisher.publish(DomainEvent.POST, postId, DomainEvent.COMMENT_DELETED, Map.of("id", commentId, "idString", Long.toString(commentId)));
     }
 
 
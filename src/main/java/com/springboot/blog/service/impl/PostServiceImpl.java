@@ -1,23 +1,58 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.cache.CompactPostStore;
+import com.springboot.blog.cache.PostCountCache;
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.cache.SingleFlight;
 import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.Comment;
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.entity.Tag;
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.event.DomainEventPublisher;
+import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.index.TagIndex;
+import com.springboot.blog.payload.CommentDto;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostSummary;
+import com.springboot.blog.payload.PostTag;
 import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.CommentRepository;
 import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.repository.TagRepository;
 import com.springboot.blog.service.PostService;
+import com.springboot.blog.stats.TrendingPostsTracker;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.TransactionUtils;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.config.ConfigDataResourceNotFoundException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.awt.print.Book;
 import java.awt.print.Pageable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,14 +61,43 @@ public class PostServiceImpl implements PostService {
     private PostRepository postRepository;
     private ModelMapper modelMapper;
     private CategoryRepository categoryRepository;
-
-    public PostServiceImpl(PostRepository postRepository, ModelMapper modelMapper, CategoryRepository categoryRepository) {
+    private CommentRepository commentRepository;
+    private PostPayloadCache postPayloadCache;
+    private PostCountCache postCountCache;
+    private TrendingPostsTracker trendingPostsTracker;
+    private DomainEventPublisher domainEventPublisher;
+    private CacheCoherenceManager cacheCoherenceManager;
+    private TransactionTemplate readOnlyTransaction;
+    private SingleFlight<Long, PostDto> postLoads;
+    private TagRepository tagRepository;
+    private TagIndex tagIndex;
+    private CompactPostStore compactPostStore;
+
+    public PostServiceImpl(PostRepository postRepository, ModelMapper modelMapper, CategoryRepository categoryRepository,
+                           PostPayloadCache postPayloadCache, PostCountCache postCountCache,
+                           TrendingPostsTracker trendingPostsTracker, DomainEventPublisher domainEventPublisher,
+                           CacheCoherenceManager cacheCoherenceManager, CommentRepository commentRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.single-flight.timeout-millis:3000}") long singleFlightTimeoutMillis,
+                           TagRepository tagRepository, TagIndex tagIndex, CompactPostStore compactPostStore) {
         this.postRepository = postRepository;
         this.modelMapper = modelMapper;
         this.categoryRepository = categoryRepository;
+        this.postPayloadCache = postPayloadCache;
+        this.postCountCache = postCountCache;
+        this.trendingPostsTracker = trendingPostsTracker;
+        this.domainEventPublisher = domainEventPublisher;
+        this.cacheCoherenceManager = cacheCoherenceManager;
+        this.commentRepository = commentRepository;
+        this.readOnlyTransaction = TransactionUtils.readOnly(transactionManager);
+        this.postLoads = new SingleFlight<>(singleFlightTimeoutMillis);
+        this.tagRepository = tagRepository;
+        this.tagIndex = tagIndex;
+        this.compactPostStore = compactPostStore;
     }
 
     @Override
+    @Transactional
     public PostDto createPost(PostDto postDto) {
 
         Category category = categoryRepository.findById(postDto.getCategoryId()).orElseThrow(() -> new ResourceNotFoundException("Category", "id", postDto.getCategoryId()));
@@ -42,78 +106,417 @@ public class PostServiceImpl implements PostService {
         Post post = mapToPost(postDto);
 
         post.setCategory(category);
+        if (postDto.getTags() != null){
+            post.setTags(resolveTags(postDto.getTags()));
+        }
 
         Post newPost = postRepository.save(post);
+        tagIndex.update(newPost.getId(), tagNames(newPost));
 
         //convert entity to DTO
         PostDto postResponse = mapToDto(newPost);
-
+        compactPostStore.store(postResponse);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, newPost.getId());
+        //peers drop their cached posts-by-category queries
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_LISTINGS, category.getId());
+        domainEventPublisher.publish(DomainEvent.POST, newPost.getId(), DomainEvent.POST_CREATED, toEventPayload(postResponse));
 
         return postResponse;
     }
 
     @Override
-    public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
+    @Transactional(readOnly = true)
+    public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir, String view, String countMode,
+                                    List<String> tags, String tagMatch) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         //creating instance of pageable
         PageRequest pageable = PageRequest.of(pageNo, pageSize, sort);
 
-        Page<Post> posts = postRepository.findAll(pageable);
-
-        List<Post> listOfPosts = posts.getContent();
-        List<PostDto> content = listOfPosts.stream().map(post -> mapToDto(post)).collect(Collectors.toList());
+        if (tags != null && !tags.isEmpty()){
+            return getPostsByTags(pageable, view, tags, tagMatch);
+        }
+
+        //only the exact mode pays for SELECT COUNT(*), the others fetch a slice of size+1
+        boolean exactCount = !AppConstants.COUNT_NONE.equalsIgnoreCase(countMode) && !AppConstants.COUNT_APPROXIMATE.equalsIgnoreCase(countMode);
+
+        Slice<?> posts;
+        List<PostDto> content;
+        if (isSummaryView(view)){
+            //summary view never loads content or comments
+            Slice<PostSummary> summaries = exactCount ? postRepository.findAllSummaries(pageable) : postRepository.findSummarySlice(pageable);
+            content = summaries.getContent().stream().map(summary -> mapToDto(summary)).collect(Collectors.toList());
+            posts = summaries;
+        } else {
+            Slice<Long> ids = exactCount ? postRepository.findAllIds(pageable) : postRepository.findIdSlice(pageable);
+            content = readPosts(ids.getContent());
+            posts = ids;
+        }
 
         PostResponse postResponse = new PostResponse();
         postResponse.setContent(content);
         postResponse.setPageNo(pageNo);
         postResponse.setPageSize(pageSize);
-        postResponse.setTotalPages(posts.getTotalPages());
-        postResponse.setTotalElements(posts.getTotalElements());
         postResponse.setLast(posts.isLast());
 
+        if (posts instanceof Page<?> page){
+            postResponse.setTotalPages(page.getTotalPages());
+            postResponse.setTotalElements(page.getTotalElements());
+            return postResponse;
+        }
+
+        postResponse.setHasNext(posts.hasNext());
+        if (AppConstants.COUNT_APPROXIMATE.equalsIgnoreCase(countMode)){
+            long total = postCountCache.get();
+            postResponse.setTotalElements(total);
+            postResponse.setTotalPages((int) ((total + pageSize - 1) / pageSize));
+        }
+
         return postResponse;
     }
 
+    //the tag index resolves the matching ids in memory and the page window is cut there too, so the database only
+    //sees the ids of one page. Tag listings are sorted by id, i.e. by creation time; the index returns ordinal order,
+    //which stops being id order once ordinals are reused, so the ids are sorted here
+    private PostResponse getPostsByTags(PageRequest pageable, String view, List<String> tags, String tagMatch){
+        Sort.Order order = pageable.getSort().getOrderFor("id");
+        if (order == null){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Posts filtered by tags can only be sorted by id");
+        }
+        Set<String> normalized = new HashSet<>();
+        tags.forEach(tag -> normalized.add(tag.trim().toLowerCase()));
+        List<Long> ids = new ArrayList<>(tagIndex.find(normalized, !AppConstants.TAG_MATCH_ANY.equalsIgnoreCase(tagMatch)));
+        ids.sort(order.isAscending() ? Comparator.naturalOrder() : Comparator.reverseOrder());
+
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+        boolean last = to == ids.size();
+
+        List<PostDto> content;
+        if (pageIds.isEmpty()){
+            content = List.of();
+        } else if (isSummaryView(view)){
+            Map<Long, PostSummary> summaries = new HashMap<>();
+            postRepository.findSummariesByIdIn(pageIds).forEach(summary -> summaries.put(summary.getId(), summary));
+            content = pageIds.stream().map(summaries::get).filter(Objects::nonNull).map(summary -> mapToDto(summary))
+                    .collect(Collectors.toList());
+        } else {
+            content = readPosts(pageIds);
+        }
+
+        //the index already knows the exact total, so no COUNT(*) is needed
+        PostResponse postResponse = new PostResponse();
+        postResponse.setContent(content);
+        postResponse.setPageNo(pageable.getPageNumber());
+        postResponse.setPageSize(pageable.getPageSize());
+        postResponse.setTotalElements((long) ids.size());
+        postResponse.setTotalPages((ids.size() + pageable.getPageSize() - 1) / pageable.getPageSize());
+        postResponse.setLast(last);
+        postResponse.setHasNext(!last);
+        return postResponse;
+    }
+
+    //posts in id order, served from the compact store where possible; the misses are loaded with two IN queries
+    private List<PostDto> readPosts(List<Long> ids){
+        Map<Long, PostDto> posts = getPostsByIds(ids);
+        return ids.stream().map(posts::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    //hot posts are decoded from the compact store without touching Hibernate. Otherwise concurrent reads of one post
+    //share a single load; the transaction is opened by the loader, so waiting callers do not hold a connection
     @Override
     public PostDto getPostById(long id) {
-        Post post = postRepository.findById(id).orElseThrow(()-> new ResourceNotFoundException("Post", "id", id));
-        return mapToDto(post);
+        PostDto stored = compactPostStore.get(id);
+        if (stored != null){
+            return stored;
+        }
+        return postLoads.execute(id, () -> {
+            long startGeneration = compactPostStore.generation();
+            PostDto postDto = readOnlyTransaction.execute(status -> {
+                Post post = postRepository.findById(id).orElseThrow(()-> new ResourceNotFoundException("Post", "id", id));
+                return mapToDto(post);
+            });
+            compactPostStore.putLoaded(postDto, startGeneration);
+            return postDto;
+        });
     }
 
     @Override
-    public PostDto updatePost(PostDto postDto, long id) {
+    @Transactional
+    public PostDto updatePost(PostDto postDto, long id, Long expectedVersion) {
+        //the single-statement update cannot touch the join table, so tag changes take the entity path
+        if (expectedVersion != null && postDto.getTags() == null){
+            return updatePostIfVersionMatches(postDto, id, expectedVersion);
+        }
+
         //finding the post and update by id, if post not found then throw the exception
         Post post = postRepository.findById(id).orElseThrow(()-> new ResourceNotFoundException("Post", "id", id));
+        if (expectedVersion != null && !expectedVersion.equals(post.getVersion())){
+            throw new BlogAPIException(HttpStatus.PRECONDITION_FAILED, "Post was modified by someone else, reload it and retry");
+        }
 
         Category category = categoryRepository.findById(postDto.getCategoryId()).orElseThrow(() -> new ResourceNotFoundException("Category", "id", postDto.getCategoryId()));
+        long previousCategoryId = post.getCategory().getId();
 
         post.setTitle(postDto.getTitle());
         post.setDescription(postDto.getDescription());
         post.setContent(postDto.getContent());
         post.setCategory(category);
+        if (postDto.getTags() != null){
+            post.setTags(resolveTags(postDto.getTags()));
+        }
+
+        Post updatePost = postRepository.saveAndFlush(post);
+        tagIndex.update(id, tagNames(updatePost));
+        postPayloadCache.evict(id);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, id);
+        if (category.getId() != previousCategoryId){
+            cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_LISTINGS, category.getId());
+        }
+
+        PostDto updatedPost = mapToDto(updatePost);
+        compactPostStore.store(updatedPost);
+        domainEventPublisher.publish(DomainEvent.POST, id, DomainEvent.POST_UPDATED, toEventPayload(updatedPost));
+        return updatedPost;
+    }
+
+    //client sent If-Match, so the version check in the single UPDATE detects conflicts without a pre-read.
+    //A missing category is left to the foreign key, and the answer is the request with the new version:
+    //comments and counters are not read back, a GET returns them
+    private PostDto updatePostIfVersionMatches(PostDto postDto, long id, long expectedVersion){
+        int updated;
+        try {
+            updated = postRepository.updateIfVersionMatches(id, expectedVersion, postDto.getTitle(),
+                    postDto.getDescription(), postDto.getContent(), categoryRepository.getReferenceById(postDto.getCategoryId()));
+        } catch (DataIntegrityViolationException ex) {
+            throw new ResourceNotFoundException("Category", "id", postDto.getCategoryId());
+        }
+        if (updated == 0){
+            if (!postRepository.existsById(id)){
+                throw new ResourceNotFoundException("Post", "id", id);
+            }
+            throw new BlogAPIException(HttpStatus.PRECONDITION_FAILED, "Post was modified by someone else, reload it and retry");
+        }
+        postPayloadCache.evict(id);
+        compactPostStore.evict(id);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, id);
+        //without the pre-read there is no telling whether the category changed
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_LISTINGS, postDto.getCategoryId());
+
+        PostDto updatedPost = new PostDto();
+        updatedPost.setId(id);
+        updatedPost.setTitle(postDto.getTitle());
+        updatedPost.setDescription(postDto.getDescription());
+        updatedPost.setContent(postDto.getContent());
+        updatedPost.setCategoryId(postDto.getCategoryId());
+        updatedPost.setVersion(expectedVersion + 1);
+        domainEventPublisher.publish(DomainEvent.POST, id, DomainEvent.POST_UPDATED, toEventPayload(updatedPost));
+        return updatedPost;
+    }
 
-        Post updatePost = postRepository.save(post);
+    @Override
+    @Transactional
+    public long patchPost(Map<String, Object> patch, long id, Long expectedVersion) {
+        //translate the merge patch into the entity attributes to update, untouched columns are never sent
+        Map<String, Object> attributes = new HashMap<>();
+        for (Map.Entry<String, Object> field : patch.entrySet()){
+            switch (field.getKey()){
+                case "title" -> attributes.put("title", requireText(field, 2, "Post Title should have at least 2 characters"));
+                case "description" -> attributes.put("description", requireText(field, 10, "Post Description should have at least 10 characters"));
+                case "content" -> attributes.put("content", requireText(field, 1, "Post Content should not be empty"));
+                case "categoryId" -> attributes.put("category", resolveCategory(field.getValue()));
+                default -> throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Field '" + field.getKey() + "' cannot be patched");
+            }
+        }
+
+        if (attributes.isEmpty()){
+            Long version = postRepository.findVersionById(id);
+            if (version == null){
+                throw new ResourceNotFoundException("Post", "id", id);
+            }
+            return version;
+        }
+
+        int updated = postRepository.patch(id, attributes, expectedVersion);
+        if (updated == 0){
+            if (!postRepository.existsById(id)){
+                throw new ResourceNotFoundException("Post", "id", id);
+            }
+            throw new BlogAPIException(HttpStatus.PRECONDITION_FAILED, "Post was modified by someone else, reload it and retry");
+        }
+        postPayloadCache.evict(id);
+        compactPostStore.evict(id);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, id);
+        if (attributes.containsKey("category")){
+            cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_LISTINGS, patch.get("categoryId"));
+        }
+
+        long version = expectedVersion != null ? expectedVersion + 1 : postRepository.findVersionById(id);
+        //a patch event carries only the fields that changed
+        Map<String, Object> payload = new HashMap<>(patch);
+        payload.put("id", id);
+        payload.put("idString", Long.toString(id));
+        if (patch.get("categoryId") != null){
+            payload.put("categoryIdString", patch.get("categoryId").toString());
+        }
+        payload.put("version", version);
+        domainEventPublisher.publish(DomainEvent.POST, id, DomainEvent.POST_UPDATED, payload);
+        return version;
+    }
+
+    private static String requireText(Map.Entry<String, Object> field, int minLength, String message){
+        if (!(field.getValue() instanceof String value) || value.trim().length() < minLength){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, message);
+        }
+        return value;
+    }
 
-        return mapToDto(updatePost);
+    //only runs when the patch names a category, and then only checks the key instead of loading the row
+    private Category resolveCategory(Object value){
+        if (!(value instanceof Number number)){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "categoryId must be a number");
+        }
+        long categoryId = number.longValue();
+        if (!categoryRepository.existsById(categoryId)){
+            throw new ResourceNotFoundException("Category", "id", categoryId);
+        }
+        return categoryRepository.getReferenceById(categoryId);
     }
 
     @Override
+    @Transactional
     public void deletePost(long id) {
         //finding the post and delete by using id, if post not found then throw the exception
-        Post post = postRepository.findById(id).orElseThrow(()-> new ResourceNotFoundException("Post", "id", id));
+        Post post = postRepository.findForDeleteById(id).orElseThrow(()-> new ResourceNotFoundException("Post", "id", id));
         postRepository.delete(post);
+        tagIndex.remove(id);
+        postPayloadCache.evict(id);
+        compactPostStore.evict(id);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POSTS, id);
+        cacheCoherenceManager.broadcast(CacheCoherenceManager.POST_LISTINGS, post.getCategory().getId());
+        domainEventPublisher.publish(DomainEvent.POST, id, DomainEvent.POST_DELETED, Map.of("id", id, "idString", Long.toString(id)));
     }
 
     @Override
-    public List<PostDto> getPostByCategoryId(Long categoryId) {
+    @Transactional(readOnly = true)
+    public List<PostDto> getPostByCategoryId(Long categoryId, String view) {
         //get the posts belongs to category. For that 1st will check category is exist or not, if not then throw the exception\
         Category category = categoryRepository.findById(categoryId).orElseThrow(()-> new ResourceNotFoundException("Category","id",categoryId));
+
+        if (isSummaryView(view)){
+            List<PostSummary> summaries = postRepository.findSummariesByCategoryId(categoryId);
+            return summaries.stream().map(summary -> mapToDto(summary)).collect(Collectors.toList());
+        }
+
         List<Post> posts = postRepository.findByCategoryId(categoryId);
 
         return posts.stream().map((post)-> modelMapper.map(post,PostDto.class)).collect(Collectors.toList());
     }
 
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, PostDto> getPostsByIds(Collection<Long> ids) {
+        Map<Long, PostDto> postDtos = compactPostStore.getAll(ids);
+        List<Long> misses = ids.stream().filter(id -> !postDtos.containsKey(id)).distinct().collect(Collectors.toList());
+        if (misses.isEmpty()){
+            return postDtos;
+        }
+
+        //one IN query for the posts and one for all of their comments, instead of a lookup and a lazy load per post
+        long startGeneration = compactPostStore.generation();
+        List<Post> posts = postRepository.findAllById(misses);
+        Map<Long, Set<CommentDto>> comments = new HashMap<>();
+        for (Comment comment : commentRepository.findByPostIdIn(misses)){
+            comments.computeIfAbsent(comment.getPost().getId(), id -> new HashSet<>()).add(modelMapper.map(comment, CommentDto.class));
+        }
+        Map<Long, Set<String>> tags = new HashMap<>();
+        for (PostTag postTag : postRepository.findPostTagsByPostIdIn(misses)){
+            tags.computeIfAbsent(postTag.getPostId(), id -> new TreeSet<>()).add(postTag.getTagName());
+        }
+
+        for (Post post : posts){
+            PostDto postDto = new PostDto();
+            postDto.setId(post.getId());
+            postDto.setTitle(post.getTitle());
+            postDto.setDescription(post.getDescription());
+            postDto.setContent(post.getContent());
+            postDto.setCategoryId(post.getCategory().getId());
+            postDto.setVersion(post.getVersion());
+            postDto.setCommentCount(post.getCommentCount());
+            postDto.setViewCount(post.getViewCount());
+            postDto.setComments(comments.getOrDefault(post.getId(), new HashSet<>()));
+            postDto.setTags(tags.getOrDefault(post.getId(), new TreeSet<>()));
+            postDtos.put(post.getId(), postDto);
+            compactPostStore.putLoaded(postDto, startGeneration);
+        }
+        return postDtos;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PostDto> getTrendingPosts(int limit) {
+        List<Long> ids = trendingPostsTracker.topPostIds(limit);
+        if (ids.isEmpty()){
+            return List.of();
+        }
+
+        //one IN query for the ranked ids, then restore the ranking order; deleted posts simply drop out
+        Map<Long, PostDto> posts = new HashMap<>();
+        for (PostSummary summary : postRepository.findSummariesByIdIn(ids)){
+            posts.put(summary.getId(), mapToDto(summary));
+        }
+        return ids.stream().map(posts::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    //post events leave out the content and comments, subscribers that need them reload the post
+    private static Map<String, Object> toEventPayload(PostDto postDto){
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("id", postDto.getId());
+        payload.put("idString", postDto.getIdString());
+        payload.put("title", postDto.getTitle());
+        payload.put("description", postDto.getDescription());
+        payload.put("categoryId", postDto.getCategoryId());
+        payload.put("categoryIdString", postDto.getCategoryIdString());
+        payload.put("version", postDto.getVersion());
+        if (postDto.getTags() != null){
+            payload.put("tags", new ArrayList<>(postDto.getTags()));
+        }
+        return payload;
+    }
+
+    //normalizes the requested names and creates the tags that do not exist yet
+    private Set<Tag> resolveTags(Set<String> names){
+        Set<String> normalized = new HashSet<>();
+        for (String name : names){
+            String tag = name == null ? "" : name.trim().toLowerCase();
+            if (tag.isEmpty() || tag.length() > AppConstants.MAX_TAG_LENGTH){
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Tags must have between 1 and " + AppConstants.MAX_TAG_LENGTH + " characters");
+            }
+            normalized.add(tag);
+        }
+        if (normalized.size() > AppConstants.MAX_TAGS_PER_POST){
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "A post can have at most " + AppConstants.MAX_TAGS_PER_POST + " tags");
+        }
+        if (normalized.isEmpty()){
+            return new HashSet<>();
+        }
+
+        Set<Tag> tags = new HashSet<>(tagRepository.findByNameIn(normalized));
+        Set<String> missing = new HashSet<>(normalized);
+        tags.forEach(tag -> missing.remove(tag.getName()));
+        for (String name : missing){
+            Tag tag = new Tag();
+            tag.setName(name);
+            tags.add(tagRepository.save(tag));
+        }
+        return tags;
+    }
+
+    private static Set<String> tagNames(Post post){
+        return post.getTags().stream().map(Tag::getName).collect(Collectors.toSet());
+    }
+
     //convert entity to DTO
     private PostDto mapToDto(Post post){
         PostDto postDto = modelMapper.map(post, PostDto.class);
@@ -126,6 +529,22 @@ public class PostServiceImpl implements PostService {
         return postDto;
     }
 
+    //convert summary projection to DTO, content and comments stay null so they are left out of the response
+    private PostDto mapToDto(PostSummary summary){
+        PostDto postDto = new PostDto();
+        postDto.setId(summary.getId());
+        postDto.setTitle(summary.getTitle());
+        postDto.setDescription(summary.getDescription());
+        postDto.setCategoryId(summary.getCategoryId());
+        postDto.setCommentCount(summary.getCommentCount());
+        postDto.setViewCount(summary.getViewCount());
+        return postDto;
+    }
+
+    private boolean isSummaryView(String view){
+        return AppConstants.VIEW_SUMMARY.equalsIgnoreCase(view);
+    }
+
     //convert DTO to entity
     private Post mapToPost(PostDto postDto){
         Post post = modelMapper.map(postDto, Post.class);
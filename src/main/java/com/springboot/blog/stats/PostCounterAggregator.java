@@ -0,0 +1,204 @@
+package com.springboot.blog.stats;
+
+import com.springboot.blog.cache.SecondLevelCache;
+import com.springboot.blog.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//write-behind counters for posts: requests only bump in-memory adders, a scheduled flush adds the deltas in one JDBC batch
+@Component
+public class PostCounterAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostCounterAggregator.class);
+
+    private static final String FLUSH_SQL = "update posts set comment_count = comment_count + ?, view_count = view_count + ? where id = ?";
+    private static final String DRIFT_SQL = "select p.id, p.comment_count, (select count(*) from comments c where c.post_id = p.id) "
+            + "from posts p where p.id > ? order by p.id limit ?";
+    //only when no flush moved the count since it was read
+    private static final String RECONCILE_SQL = "update posts set comment_count = ? where id = ? and comment_count = ?";
+    //a MySQL named lock, held by the connection that took it, so one node reconciles at a time
+    private static final String LOCK_SQL = "select get_lock('post-counter-reconcile', 0)";
+    private static final String UNLOCK_SQL = "select release_lock('post-counter-reconcile')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean reconcileOnStartup;
+    private final int reconcileChunkSize;
+    private final long reconcileSettleMillis;
+    private final Map<Long, Deltas> pending = new ConcurrentHashMap<>();
+    private final SecondLevelCache secondLevelCache;
+
+    public PostCounterAggregator(JdbcTemplate jdbcTemplate,
+                                 @Value("${app.counters.reconcile-on-startup:false}") boolean reconcileOnStartup,
+                                 @Value("${app.counters.reconcile-chunk-size:1000}") int reconcileChunkSize,
+                                 @Value("${app.counters.flush-millis:5000}") long flushMillis,
+                                 SecondLevelCache secondLevelCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reconcileOnStartup = reconcileOnStartup;
+        this.reconcileChunkSize = reconcileChunkSize;
+        this.reconcileSettleMillis = 2 * flushMillis;
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    //comment counts only move once the comment is actually committed
+    public void commentAdded(long postId){
+        TransactionUtils.afterCommit(() -> add(postId, 1, 0));
+    }
+
+    public void commentRemoved(long postId){
+        TransactionUtils.afterCommit(() -> add(postId, -1, 0));
+    }
+
+    public void postViewed(long postId){
+        add(postId, 0, 1);
+    }
+
+    //a flush detaches each post's deltas before draining them, so the map only holds posts active since the last flush
+    @Scheduled(fixedDelayString = "${app.counters.flush-millis:5000}")
+    @PreDestroy
+    public synchronized void flush(){
+        List<Object[]> batch = new ArrayList<>();
+        for (Long postId : pending.keySet()){
+            Deltas deltas = pending.remove(postId);
+            if (deltas == null){
+                continue;
+            }
+            long comments = deltas.comments.getAndSet(0);
+            long views = deltas.views.getAndSet(0);
+            if (comments != 0 || views != 0){
+                batch.add(new Object[]{comments, views, postId});
+            }
+        }
+
+        if (batch.isEmpty()){
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            //cached posts pick up new comment counts right away; view counts may lag until the cache entry expires,
+            //evicting every viewed post on each flush would keep the hottest posts out of the cache
+            secondLevelCache.evictPosts(batch.stream().filter(row -> (Long) row[0] != 0).map(row -> (Long) row[2]).toList());
+        } catch (RuntimeException e) {
+            //put the deltas back, the next flush retries them
+            for (Object[] row : batch){
+                add((Long) row[2], (Long) row[0], (Long) row[1]);
+            }
+            logger.warn("Flushing {} post counters failed, will retry: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    //comment counts are derivable from the comments table, so a crash or a lost flush is repaired here.
+    //Not synchronized: flushes must go on while it waits for the other nodes to flush
+    @Scheduled(cron = "${app.counters.reconcile-cron:0 0 4 * * *}")
+    public void reconcile(){
+        Boolean reconciled = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!selectFlag(connection, LOCK_SQL)){
+                return false;
+            }
+            try {
+                reconcileDrifted();
+                return true;
+            } finally {
+                selectFlag(connection, UNLOCK_SQL);
+            }
+        });
+        if (!Boolean.TRUE.equals(reconciled)){
+            logger.info("Another node is reconciling comment counts, skipped");
+        }
+    }
+
+    //Another node's unflushed deltas are for comments already in the table, so overwriting the count right away would
+    //count them twice once that node flushes. Drift is read in id chunks, and a count is only overwritten if no flush
+    //moved it during a settle time of two flush intervals, by which every node has flushed what it held at the read
+    private void reconcileDrifted(){
+        flush();
+        List<Object[]> drifted = new ArrayList<>();
+        long afterId = 0;
+        while (true){
+            List<long[]> rows = jdbcTemplate.query(DRIFT_SQL,
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)}, afterId, reconcileChunkSize);
+            for (long[] row : rows){
+                if (row[1] != row[2]){
+                    drifted.add(new Object[]{row[2], row[0], row[1]});
+                }
+            }
+            if (rows.size() < reconcileChunkSize){
+                break;
+            }
+            afterId = rows.get(rows.size() - 1)[0];
+        }
+        if (drifted.isEmpty()){
+            logger.info("Comment counts are consistent, nothing to reconcile");
+            return;
+        }
+
+        try {
+            Thread.sleep(reconcileSettleMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flush();
+        int[] updated = jdbcTemplate.batchUpdate(RECONCILE_SQL, drifted);
+        List<Long> reconciled = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++){
+            if (updated[i] == 1){
+                reconciled.add((Long) drifted.get(i)[1]);
+            }
+        }
+        secondLevelCache.evictPosts(reconciled);
+        logger.info("Reconciled comment counts of {} of {} drifted posts, the rest changed meanwhile",
+                reconciled.size(), drifted.size());
+    }
+
+    private static boolean selectFlag(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() && resultSet.getInt(1) == 1;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup(){
+        if (reconcileOnStartup){
+            reconcile();
+        }
+    }
+
+    private void add(long postId, long comments, long views){
+        Deltas deltas = pending.computeIfAbsent(postId, id -> new Deltas());
+        deltas.comments.addAndGet(comments);
+        deltas.views.addAndGet(views);
+        //a flush may have detached and drained this instance meanwhile; whatever it missed moves to the current one,
+        //getAndSet hands each delta to exactly one of the two
+        if (pending.get(postId) != deltas){
+            long missedComments = deltas.comments.getAndSet(0);
+            long missedViews = deltas.views.getAndSet(0);
+            if (missedComments != 0 || missedViews != 0){
+                add(postId, missedComments, missedViews);
+            }
+        }
+    }
+
+    private static class Deltas {
+        private final AtomicLong comments = new AtomicLong();
+        private final AtomicLong views = new AtomicLong();
+    }
+}
@@ -0,0 +1,123 @@
+package com.springboot.blog.stats;
+
+import com.springboot.blog.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//recent comment activity per post in a ring of time buckets, older buckets weigh exponentially less
+@Component
+public class TrendingPostsTracker {
+
+    private static final int MAX_RANKED = 100;
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final double halfLifeBuckets;
+    private final long cacheMillis;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    private volatile Ranking ranking = new Ranking(Collections.emptyList(), 0);
+
+    public TrendingPostsTracker(@Value("${app.trending.bucket-seconds:60}") long bucketSeconds,
+                                @Value("${app.trending.buckets:60}") int bucketCount,
+                                @Value("${app.trending.half-life-buckets:15}") double halfLifeBuckets,
+                                @Value("${app.trending.cache-millis:5000}") long cacheMillis) {
+        this.bucketMillis = bucketSeconds * 1000;
+        this.bucketCount = bucketCount;
+        this.halfLifeBuckets = halfLifeBuckets;
+        this.cacheMillis = cacheMillis;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    public void commentAdded(long postId){
+        TransactionUtils.afterCommit(() -> record(postId, System.currentTimeMillis()));
+    }
+
+    void record(long postId, long now){
+        long epoch = now / bucketMillis;
+        int index = (int) (epoch % bucketCount);
+
+        Bucket bucket = buckets.get(index);
+        while (bucket == null || bucket.epoch != epoch){
+            //the slot still holds a bucket from a previous lap of the ring, replace it
+            Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, fresh)){
+                bucket = fresh;
+            } else {
+                bucket = buckets.get(index);
+            }
+        }
+        bucket.counts.computeIfAbsent(postId, id -> new LongAdder()).increment();
+    }
+
+    //ids of the most active posts, best first; the ranking is recomputed at most once per cache period
+    public List<Long> topPostIds(int limit){
+        return topPostIds(limit, System.currentTimeMillis());
+    }
+
+    List<Long> topPostIds(int limit, long now){
+        Ranking current = ranking;
+        if (now - current.computedAt() > cacheMillis){
+            current = new Ranking(rank(now), now);
+            ranking = current;
+        }
+        List<Long> ids = current.postIds();
+        return ids.subList(0, Math.min(limit, ids.size()));
+    }
+
+    private List<Long> rank(long now){
+        long currentEpoch = now / bucketMillis;
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < bucketCount; i++){
+            Bucket bucket = buckets.get(i);
+            if (bucket == null){
+                continue;
+            }
+            long age = currentEpoch - bucket.epoch;
+            if (age < 0 || age >= bucketCount){
+                continue;
+            }
+            double weight = Math.pow(0.5, age / halfLifeBuckets);
+            bucket.counts.forEach((postId, count) -> scores.merge(postId, count.sum() * weight, Double::sum));
+        }
+
+        //bounded min-heap keeps only the best MAX_RANKED posts
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(MAX_RANKED + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> score : scores.entrySet()){
+            heap.offer(score);
+            if (heap.size() > MAX_RANKED){
+                heap.poll();
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()){
+            ids.add(heap.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    private static class Bucket {
+        private final long epoch;
+        private final Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    private record Ranking(List<Long> postIds, long computedAt) {
+    }
+}
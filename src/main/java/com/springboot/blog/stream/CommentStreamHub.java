@@ -0,0 +1,296 @@
+package com.springboot.blog.stream;
+
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.event.DomainEventBus;
+import com.springboot.blog.event.DomainEventSubscriber;
+import com.springboot.blog.exception.BlogAPIException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//fans committed comment changes out to SSE subscribers of a post; idle subscribers hold no thread,
+//a small pool drains the per-subscriber buffers and a subscriber whose buffer overflows is dropped.
+//The event id is the post's event version, a client reconnecting with Last-Event-ID first gets what it missed
+@Component
+public class CommentStreamHub implements DomainEventSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentStreamHub.class);
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService senders;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final int replayLimit;
+
+    private DomainEventBus domainEventBus;
+
+    public CommentStreamHub(@Value("${app.comment-stream.sender-threads:2}") int senderThreads,
+                            @Value("${app.comment-stream.buffer-size:32}") int bufferSize,
+                            @Value("${app.comment-stream.max-subscribers:10000}") int maxSubscribers,
+                            @Value("${app.comment-stream.timeout-millis:1800000}") long timeoutMillis,
+                            @Value("${app.comment-stream.replay-limit:500}") int replayLimit,
+                            DomainEventBus domainEventBus) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "comment-stream-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeoutMillis;
+        this.replayLimit = replayLimit;
+        this.domainEventBus = domainEventBus;
+    }
+
+    //lastEventId is the Last-Event-ID of a reconnecting client, null for a new one
+    public EventStreamEmitter subscribe(long postId, Long lastEventId){
+        if (subscriberCount.incrementAndGet() > maxSubscribers){
+            subscriberCount.decrementAndGet();
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Too many comment streams open, retry later");
+        }
+
+        EventStreamEmitter emitter = new EventStreamEmitter(timeoutMillis);
+        register(postId, emitter, lastEventId);
+        return emitter;
+    }
+
+    void register(long postId, EventStreamEmitter emitter, Long lastEventId){
+        Subscriber subscriber = new Subscriber(postId, emitter, lastEventId == null ? 0 : lastEventId, lastEventId != null);
+        subscribers.computeIfAbsent(postId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        if (lastEventId != null){
+            replay(subscriber, lastEventId);
+        }
+    }
+
+    //live events are held back meanwhile, so the client sees every version once and in order
+    private void replay(Subscriber subscriber, long lastEventId){
+        try {
+            List<DomainEvent> missed = domainEventBus.replay(DomainEvent.POST, subscriber.postId, lastEventId, replayLimit + 1);
+            boolean complete = missed.size() <= replayLimit && contiguous(missed, lastEventId);
+            if (complete){
+                for (DomainEvent event : missed){
+                    Set<ResponseBodyEmitter.DataWithMediaType> frame = prepare(event);
+                    if (frame != null){
+                        send(subscriber, frame);
+                    }
+                    subscriber.lastVersion = event.aggregateVersion();
+                }
+            } else {
+                //too far behind or purged from the outbox, the client re-reads the comments instead
+                send(subscriber, frame(SseEmitter.event().name("reset").data("{}", MediaType.APPLICATION_JSON)));
+            }
+        } catch (IOException | IllegalStateException ex){
+            remove(subscriber);
+            subscriber.emitter.completeWithError(ex);
+            return;
+        }
+        List<Versioned> deferred;
+        synchronized (subscriber){
+            subscriber.replaying = false;
+            deferred = subscriber.deferred;
+            subscriber.deferred = null;
+        }
+        deferred.forEach(versioned -> offer(subscriber, versioned));
+    }
+
+    //every version after lastEventId, without a hole a client would never notice
+    private static boolean contiguous(List<DomainEvent> events, long lastEventId){
+        long expected = lastEventId + 1;
+        for (DomainEvent event : events){
+            if (event.aggregateVersion() != expected++){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events){
+        for (DomainEvent event : events){
+            Set<Subscriber> postSubscribers = subscribers.get(event.aggregateId());
+            if (postSubscribers == null){
+                continue;
+            }
+            Versioned versioned = new Versioned(event.aggregateVersion(), prepare(event));
+            for (Subscriber subscriber : postSubscribers){
+                offer(subscriber, versioned);
+            }
+        }
+    }
+
+    //the outbox payload already is the comment JSON, it goes out as is; null for events streams do not carry
+    private static Set<ResponseBodyEmitter.DataWithMediaType> prepare(DomainEvent event){
+        String name = eventName(event.type());
+        if (name == null){
+            return null;
+        }
+        return frame(SseEmitter.event()
+                .id(Long.toString(event.aggregateVersion()))
+                .name(name)
+                .data(event.payload(), MediaType.APPLICATION_JSON));
+    }
+
+    //post events other than comment changes still move the version, so they are tracked without being sent
+    private void offer(Subscriber subscriber, Versioned versioned){
+        synchronized (subscriber){
+            if (subscriber.replaying){
+                subscriber.deferred.add(versioned);
+                return;
+            }
+            if (versioned.version() <= subscriber.lastVersion){
+                return;
+            }
+            subscriber.lastVersion = versioned.version();
+        }
+        if (versioned.frame() != null){
+            enqueue(subscriber, versioned.frame());
+        }
+    }
+
+    //SseEventBuilder.build() appends to the builder on every call, so one builder cannot be sent to many subscribers.
+    //The frame is built once on the fan-out thread and every subscriber sends the same immutable parts
+    private static Set<ResponseBodyEmitter.DataWithMediaType> frame(SseEmitter.SseEventBuilder builder){
+        return Collections.unmodifiableSet(new LinkedHashSet<>(builder.build()));
+    }
+
+    //a heartbeat may be drained while a reconnecting subscriber is still replaying, the parts of two frames must not interleave
+    private static void send(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame) throws IOException {
+        synchronized (subscriber.emitter){
+            for (ResponseBodyEmitter.DataWithMediaType part : frame){
+                subscriber.emitter.send(part.getData(), part.getMediaType());
+            }
+        }
+    }
+
+    private static String eventName(String type){
+        return switch (type){
+            case DomainEvent.COMMENT_CREATED -> "created";
+            case DomainEvent.COMMENT_UPDATED -> "updated";
+            case DomainEvent.COMMENT_DELETED -> "deleted";
+            default -> null;
+        };
+    }
+
+    //keeps proxies from closing idle connections and flushes out clients that went away
+    @Scheduled(fixedDelayString = "${app.comment-stream.heartbeat-millis:15000}")
+    public void heartbeat(){
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = frame(SseEmitter.event().comment("heartbeat"));
+        subscribers.values().forEach(postSubscribers -> postSubscribers.forEach(subscriber -> enqueue(subscriber, frame)));
+    }
+
+    public int getSubscriberCount(){
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        subscribers.values().forEach(postSubscribers -> postSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        senders.shutdownNow();
+    }
+
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> frame){
+        if (!subscriber.buffer.offer(frame)){
+            //slow consumer, dropping it is cheaper than buffering without bound; the client reconnects and re-reads
+            logger.debug("Evicting slow comment stream subscriber for post {}", subscriber.postId);
+            remove(subscriber);
+            subscriber.emitter.completeWithError(new IOException("Subscriber too slow"));
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)){
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber){
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException ex){
+            //shut down, the emitter was completed with the others
+            subscriber.draining.set(false);
+            remove(subscriber);
+        }
+    }
+
+    private void drain(Subscriber subscriber){
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while ((frame = subscriber.buffer.poll()) != null){
+                send(subscriber, frame);
+            }
+        } catch (IOException | IllegalStateException ex){
+            remove(subscriber);
+            subscriber.emitter.completeWithError(ex);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        //an event may have arrived between the last poll and releasing the flag
+        if (!subscriber.buffer.isEmpty() && subscriber.draining.compareAndSet(false, true)){
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber){
+        if (!subscriber.removed.compareAndSet(false, true)){
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.postId, (postId, postSubscribers) -> {
+            postSubscribers.remove(subscriber);
+            return postSubscribers.isEmpty() ? null : postSubscribers;
+        });
+    }
+
+    private class Subscriber {
+        private final long postId;
+        private final EventStreamEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        //guarded by the subscriber
+        private long lastVersion;
+        private boolean replaying;
+        private List<Versioned> deferred;
+
+        private Subscriber(long postId, EventStreamEmitter emitter, long lastVersion, boolean replaying) {
+            this.postId = postId;
+            this.emitter = emitter;
+            this.lastVersion = lastVersion;
+            this.replaying = replaying;
+            this.deferred = replaying ? new ArrayList<>() : null;
+        }
+    }
+
+    private record Versioned(long version, Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.springboot.blog.stream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.nio.charset.StandardCharsets;
+
+//a text/event-stream response that is sent frames already rendered by SseEmitter.event(), part by part.
+//SseEmitter itself would wrap every send(Object, MediaType) in a data: line of its own
+public class EventStreamEmitter extends ResponseBodyEmitter {
+
+    private static final MediaType TEXT_EVENT_STREAM = new MediaType("text", "event-stream", StandardCharsets.UTF_8);
+
+    public EventStreamEmitter(Long timeout) {
+        super(timeout);
+    }
+
+    @Override
+    protected void extendResponse(ServerHttpResponse outputMessage) {
+        super.extendResponse(outputMessage);
+        HttpHeaders headers = outputMessage.getHeaders();
+        if (headers.getContentType() == null){
+            headers.setContentType(TEXT_EVENT_STREAM);
+        }
+    }
+}
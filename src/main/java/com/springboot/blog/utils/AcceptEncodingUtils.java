@@ -0,0 +1,46 @@
+package com.springboot.blog.utils;
+
+import java.util.Locale;
+
+//Accept-Encoding is a list of codings with optional q-values, e.g. "br;q=1.0, gzip;q=0.8, *;q=0"
+public class AcceptEncodingUtils {
+
+    //an explicit gzip (or x-gzip) entry wins over *, and q=0 means "not acceptable"; no header means identity only
+    public static boolean acceptsGzip(String acceptEncoding){
+        if (acceptEncoding == null || acceptEncoding.isBlank()){
+            return false;
+        }
+
+        Double gzip = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(",")){
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")){
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (coding.equals("*")){
+                any = quality;
+            }
+        }
+
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
+    }
+
+    private static double quality(String[] parts){
+        for (int i = 1; i < parts.length; i++){
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && (parameter.startsWith("q=") || parameter.startsWith("Q="))){
+                try {
+                    double quality = Double.parseDouble(parameter.substring(2).trim());
+                    return quality >= 0 && quality <= 1 ? quality : 0;
+                } catch (NumberFormatException e) {
+                    //a malformed weight is not a reason to send an encoding the client may not decode
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -5,4 +5,26 @@ public class AppConstants {
     public static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_SORT_BY = "id";
     public static final String DEFAULT_SORT_DIRECTION = "asc";
+
+    public static final String VIEW_FULL = "full";
+    public static final String VIEW_SUMMARY = "summary";
+    public static final String DEFAULT_VIEW = VIEW_FULL;
+
+    public static final String COUNT_EXACT = "exact";
+    public static final String COUNT_NONE = "none";
+    public static final String COUNT_APPROXIMATE = "approximate";
+    public static final String DEFAULT_COUNT_MODE = COUNT_EXACT;
+
+    public static final String DEFAULT_TRENDING_LIMIT = "10";
+    public static final int MAX_TRENDING_LIMIT = 100;
+
+    public static final int MAX_BATCH_IDS = 100;
+
+    public static final String TAG_MATCH_ALL = "all";
+    public static final String TAG_MATCH_ANY = "any";
+    public static final String DEFAULT_TAG_MATCH = TAG_MATCH_ALL;
+    public static final int MAX_TAGS_PER_POST = 10;
+    public static final int MAX_TAG_LENGTH = 50;
+
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
 }
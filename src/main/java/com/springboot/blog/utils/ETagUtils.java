@@ -0,0 +1,33 @@
+package com.springboot.blog.utils;
+
+import com.springboot.blog.exception.BlogAPIException;
+import org.springframework.http.HttpStatus;
+
+//entity versions travel as strong ETags, e.g. "3"
+public class ETagUtils {
+
+    public static String toETag(long version){
+        return "\"" + version + "\"";
+    }
+
+    //returns null when no If-Match was sent or it matches any version
+    public static Long parseIfMatch(String ifMatch){
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")){
+            return null;
+        }
+
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")){
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")){
+            value = value.substring(1, value.length() - 1);
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "If-Match must be an ETag returned by this API");
+        }
+    }
+}
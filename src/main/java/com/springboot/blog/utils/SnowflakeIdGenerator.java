@@ -0,0 +1,66 @@
+package com.springboot.blog.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//time-ordered 64-bit ids: 41 bits of milliseconds since EPOCH, 10 bits of node id and a 12 bit sequence,
+//so each node hands out up to 4096 ids per millisecond without coordination
+public class SnowflakeIdGenerator {
+
+    //2023-01-01T00:00:00Z, keeps the ids positive for roughly 69 years
+    public static final long EPOCH = 1672531200000L;
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final Map<Integer, SnowflakeIdGenerator> GENERATORS = new ConcurrentHashMap<>();
+
+    private final long nodeBits;
+    //last issued timestamp and sequence packed together, so a single CAS claims an id
+    private final AtomicLong state = new AtomicLong();
+
+    private SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID){
+            throw new IllegalArgumentException("Snowflake node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    //the configured node id; there is no default outside dev, instances left on one would hand out the same ids
+    public static int parseNodeId(String configured){
+        if (configured == null || configured.isBlank()){
+            throw new IllegalStateException("Snowflake node id is not set, give every instance its own APP_NODE_ID (0-"
+                    + MAX_NODE_ID + ")");
+        }
+        return Integer.parseInt(configured.trim());
+    }
+
+    //one generator per node id and JVM, shared by every entity
+    public static SnowflakeIdGenerator forNode(int nodeId){
+        return GENERATORS.computeIfAbsent(nodeId, SnowflakeIdGenerator::new);
+    }
+
+    public long nextId(){
+        while (true){
+            long previous = state.get();
+            long previousMillis = previous >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH;
+
+            long next;
+            if (now > previousMillis){
+                next = now << SEQUENCE_BITS;
+            } else {
+                //same millisecond, or the clock stepped back: keep counting on the last timestamp,
+                //borrowing the next millisecond once its sequence runs out
+                next = previous + 1;
+            }
+            if (state.compareAndSet(previous, next)){
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
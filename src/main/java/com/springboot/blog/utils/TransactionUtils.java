@@ -0,0 +1,30 @@
+package com.springboot.blog.utils;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class TransactionUtils {
+
+    //for reads that must open their transaction inside another construct, e.g. a single-flight load
+    public static TransactionTemplate readOnly(PlatformTransactionManager transactionManager){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate;
+    }
+
+    //runs the action once the surrounding transaction commits, or right away when there is none
+    public static void afterCommit(Runnable action){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()){
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.springboot.blog.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheCoherenceManagerTest {
+
+    private final List<CacheCoherenceManager> nodes = new ArrayList<>();
+    private final AtomicInteger evictedKeys = new AtomicInteger();
+    private final AtomicInteger evictedAll = new AtomicInteger();
+
+    @AfterEach
+    void stop() {
+        nodes.forEach(CacheCoherenceManager::stop);
+    }
+
+    @Test
+    void concurrentBroadcastsArriveWithoutGaps() throws Exception {
+        CacheCoherenceManager sender = node(5_000);
+        CacheCoherenceManager receiver = node(5_000);
+        receiver.registerRegion(CacheCoherenceManager.POSTS, key -> evictedKeys.incrementAndGet(), evictedAll::incrementAndGet);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 8; i++){
+                writers.add(executor.submit(() -> {
+                    for (int post = 0; post < 1_000; post++){
+                        sender.broadcast(CacheCoherenceManager.POSTS, post);
+                        if (post % 100 == 0){
+                            sender.heartbeat();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers){
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        sender.heartbeat();
+        sender.heartbeat();
+
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(0L);
+        assertThat(evictedKeys.get()).isEqualTo(8_000);
+        assertThat(evictedAll.get()).isZero();
+    }
+
+    @Test
+    void reorderingWithinTheWindowIsNotAGap() {
+        CacheCoherenceManager receiver = node(5_000);
+
+        receiver.receive(message(1));
+        receiver.receive(message(3));
+        receiver.receive(message(2));
+        receiver.receive(message(4));
+
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(0L);
+    }
+
+    @Test
+    void aSequenceFallingOutOfTheWindowIsAGap() {
+        CacheCoherenceManager receiver = node(5_000);
+        receiver.registerRegion(CacheCoherenceManager.POSTS, key -> evictedKeys.incrementAndGet(), evictedAll::incrementAndGet);
+
+        receiver.receive(message(1));
+        for (long sequence = 3; sequence <= 3 + 64; sequence++){
+            receiver.receive(message(sequence));
+        }
+
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(1L);
+        assertThat(evictedAll.get()).isEqualTo(1);
+        //a late arrival of the lost one changes nothing
+        receiver.receive(message(2));
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(1L);
+    }
+
+    @Test
+    void aMessageAnnouncedByAHeartbeatMayArriveBeforeTheNextOne() {
+        CacheCoherenceManager receiver = node(5_000);
+
+        receiver.receive(message(1));
+        receiver.receive(InvalidationMessage.heartbeat("peer", 2));
+        receiver.receive(message(2));
+        receiver.receive(InvalidationMessage.heartbeat("peer", 2));
+
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(0L);
+    }
+
+    @Test
+    void aMessageStillMissingAtTheNextHeartbeatIsAGap() {
+        CacheCoherenceManager receiver = node(5_000);
+
+        receiver.receive(message(1));
+        receiver.receive(InvalidationMessage.heartbeat("peer", 2));
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(0L);
+
+        receiver.receive(InvalidationMessage.heartbeat("peer", 2));
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(1L);
+        receiver.receive(InvalidationMessage.heartbeat("peer", 2));
+        assertThat(receiver.metrics().get("gaps")).isEqualTo(1L);
+    }
+
+    @Test
+    void quietPeersAreForgotten() throws InterruptedException {
+        CacheCoherenceManager receiver = node(10);
+
+        receiver.receive(message(1));
+        assertThat(receiver.metrics().get("peers")).isEqualTo(1);
+
+        Thread.sleep(50);
+        receiver.heartbeat();
+        assertThat(receiver.metrics().get("peers")).isEqualTo(0);
+    }
+
+    private CacheCoherenceManager node(long heartbeatMillis) {
+        CacheCoherenceManager node = new CacheCoherenceManager(new LoopbackInvalidationTransport(), 30_000,
+                heartbeatMillis, 3, 64);
+        node.start();
+        nodes.add(node);
+        return node;
+    }
+
+    private static InvalidationMessage message(long sequence) {
+        return new InvalidationMessage("peer", sequence, CacheCoherenceManager.POSTS, "7");
+    }
+}
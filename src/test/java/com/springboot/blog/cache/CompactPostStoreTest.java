@@ -0,0 +1,71 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.payload.PostDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactPostStoreTest {
+
+    private static final int MAX_BYTES = 64 * 1024;
+
+    @Test
+    void newPostsAreStillCachedOnceTheStoreIsFull() {
+        CompactPostStore store = store(30_000);
+
+        for (long postId = 1; postId <= 2_000; postId++){
+            store.putLoaded(post(postId), store.generation());
+            assertThat(store.get(postId)).as("post %d", postId).isNotNull();
+        }
+
+        Map<String, Object> metrics = store.metrics();
+        assertThat(metrics.get("rejected")).isEqualTo(0L);
+        assertThat((Long) metrics.get("evictions")).isPositive();
+        assertThat((Integer) metrics.get("capacityBytes")).isLessThanOrEqualTo(MAX_BYTES);
+        assertThat(store.get(1L)).isNull();
+    }
+
+    @Test
+    void recentlyReadPostsSurviveEviction() {
+        CompactPostStore store = store(30_000);
+        store.putLoaded(post(1L), store.generation());
+
+        for (long postId = 2; postId <= 2_000; postId++){
+            assertThat(store.get(1L)).isNotNull();
+            store.putLoaded(post(postId), store.generation());
+        }
+
+        assertThat(store.get(1L).getTitle()).isEqualTo(post(1L).getTitle());
+    }
+
+    @Test
+    void expiredPostsAreReclaimedOnRead() throws InterruptedException {
+        CompactPostStore store = store(1);
+        store.putLoaded(post(1L), store.generation());
+        Thread.sleep(5);
+
+        assertThat(store.get(1L)).isNull();
+        assertThat(store.metrics().get("posts")).isEqualTo(0);
+        assertThat((Long) store.metrics().get("deadBytes")).isPositive();
+    }
+
+    private static CompactPostStore store(long maxStalenessMillis) {
+        return new CompactPostStore(true, false, 4 * 1024, MAX_BYTES,
+                new CacheCoherenceManager(new LoopbackInvalidationTransport(), maxStalenessMillis, 5_000, 3, 64));
+    }
+
+    private static PostDto post(long postId) {
+        PostDto post = new PostDto();
+        post.setId(postId);
+        post.setVersion(1L);
+        post.setCategoryId(3L);
+        post.setTitle("Post " + postId);
+        post.setDescription("Description of post " + postId);
+        post.setContent("x".repeat(200));
+        post.setTags(Set.of("java", "spring"));
+        return post;
+    }
+}
@@ -0,0 +1,174 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.entity.Category;
+import com.springboot.blog.entity.OutboxEvent;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.ingest.CommentIngestQueue;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.repository.CategoryRepository;
+import com.springboot.blog.repository.OutboxEventRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.stats.PostCounterAggregator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//writes that bypass the session (comment ingest, counter flush) and a post delete must not leave stale cache entries
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "app.comment-ingest.enabled=true",
+        "app.counters.flush-millis=3600000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class SecondLevelCacheIntegrationTest {
+
+    private static final String POST_COMMENTS = Post.class.getName() + ".comments";
+    private static final String CATEGORY_POSTS = Category.class.getName() + ".posts";
+
+    @Container
+    private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.33");
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+        registry.add("app.comment-ingest.journal", Files.createTempDirectory("comment-ingest").resolve("journal")::toString);
+    }
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private CommentIngestQueue commentIngestQueue;
+    @Autowired
+    private PostCounterAggregator postCounterAggregator;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cache cache;
+    private long categoryId;
+    private long postId;
+
+    @BeforeEach
+    void createPost() {
+        cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        cache.evictAllRegions();
+        transactionTemplate.executeWithoutResult(status -> {
+            Category category = new Category();
+            category.setName("Caching");
+            category.setDescription("Second-level cache");
+            categoryId = categoryRepository.save(category).getId();
+
+            Post post = new Post();
+            post.setTitle("Post " + System.nanoTime());
+            post.setDescription("Cached post description");
+            post.setContent("content");
+            post.setCategory(category);
+            postId = postRepository.save(post).getId();
+        });
+    }
+
+    @Test
+    void ingestedCommentsShowUpInCachedPostComments() throws InterruptedException {
+        assertThat(commentCount()).isZero();
+        assertThat(cache.containsCollection(POST_COMMENTS, postId)).isTrue();
+
+        commentIngestQueue.submit(postId, comment());
+        commentIngestQueue.submit(postId, comment());
+        await(() -> commentIngestQueue.pendingComments(postId).isEmpty());
+
+        assertThat(commentCount()).isEqualTo(2);
+        //versions reserved per batch, outbox rows inserted together
+        assertThat(outboxEventRepository.findByAggregateTypeAndAggregateIdAndAggregateVersionGreaterThanOrderByAggregateVersionAsc(
+                DomainEvent.POST, postId, 0, PageRequest.of(0, 10)))
+                .extracting(OutboxEvent::getAggregateVersion, OutboxEvent::getEventType)
+                .containsExactly(tuple(1L, DomainEvent.COMMENT_CREATED), tuple(2L, DomainEvent.COMMENT_CREATED));
+    }
+
+    @Test
+    void flushedCountersShowUpInCachedPostsAndCategoryQueries() {
+        assertThat(postsByCategory()).extracting(Post::getCommentCount).containsExactly(0L);
+        assertThat(cache.containsEntity(Post.class, postId)).isTrue();
+
+        postCounterAggregator.commentAdded(postId);
+        postCounterAggregator.commentAdded(postId);
+        postCounterAggregator.flush();
+
+        Long commentCount = transactionTemplate.execute(status -> postRepository.findById(postId).orElseThrow().getCommentCount());
+        assertThat(commentCount).isEqualTo(2L);
+        assertThat(postsByCategory()).extracting(Post::getCommentCount).containsExactly(2L);
+    }
+
+    @Test
+    void deletedPostsLeaveCategoryCollectionsAndQueries() throws InterruptedException {
+        commentIngestQueue.submit(postId, comment());
+        await(() -> commentIngestQueue.pendingComments(postId).isEmpty());
+        assertThat(categoryPosts()).containsExactly(postId);
+        assertThat(postsByCategory()).extracting(Post::getId).containsExactly(postId);
+        assertThat(cache.containsCollection(CATEGORY_POSTS, categoryId)).isTrue();
+
+        postService.deletePost(postId);
+
+        assertThat(categoryPosts()).isEmpty();
+        assertThat(postsByCategory()).isEmpty();
+        assertThat(postRepository.existsById(postId)).isFalse();
+    }
+
+    private int commentCount() {
+        return transactionTemplate.execute(status -> postRepository.findById(postId).orElseThrow().getComments().size());
+    }
+
+    private List<Long> categoryPosts() {
+        return transactionTemplate.execute(status -> categoryRepository.findById(categoryId).orElseThrow()
+                .getPosts().stream().map(Post::getId).toList());
+    }
+
+    private List<Post> postsByCategory() {
+        return transactionTemplate.execute(status -> postRepository.findByCategoryId(categoryId));
+    }
+
+    private static CommentDto comment() {
+        CommentDto comment = new CommentDto();
+        comment.setName("reader");
+        comment.setEmail("reader@example.com");
+        comment.setBody("A comment long enough");
+        return comment;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()){
+            assertThat(System.currentTimeMillis()).as("waiting for the comment writers").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+}
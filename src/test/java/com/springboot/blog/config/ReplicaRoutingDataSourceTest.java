@@ -0,0 +1,65 @@
+package com.springboot.blog.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(mock(DataSource.class),
+            Map.of("replica-1", mock(DataSource.class)), 60_000);
+
+    @BeforeEach
+    void startTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void clear() {
+        TransactionSynchronizationManager.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void anonymousWritesDoNotPinAnonymousReadsToThePrimary() {
+        authenticate(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+        assertThat(route(false)).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(route(true)).isEqualTo("replica-1");
+    }
+
+    @Test
+    void authenticatedUsersReadTheirOwnWritesFromThePrimary() {
+        authenticate(UsernamePasswordAuthenticationToken.authenticated("alice", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+        assertThat(route(false)).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(route(true)).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+
+        authenticate(UsernamePasswordAuthenticationToken.authenticated("bob", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER")));
+        assertThat(route(true)).isEqualTo("replica-1");
+    }
+
+    private Object route(boolean readOnly) {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        return dataSource.determineCurrentLookupKey();
+    }
+
+    private static void authenticate(Authentication authentication) {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+}
@@ -0,0 +1,41 @@
+package com.springboot.blog.config;
+
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.xml.XmlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondLevelCacheConfigTest {
+
+    @Test
+    void expiringRegionsLiveForTheMaxStaleness() {
+        XmlConfiguration xml = new XmlConfiguration(getClass().getClassLoader().getResource(SecondLevelCacheConfig.EHCACHE_XML));
+
+        Map<String, CacheConfiguration<?, ?>> caches = SecondLevelCacheConfig.withTimeToLive(xml, Duration.ofMillis(1500))
+                .getCacheConfigurations();
+
+        assertThat(caches).containsOnlyKeys(xml.getCacheConfigurations().keySet());
+        assertThat(timeToLive(caches.get("posts"))).isEqualTo(Duration.ofMillis(1500));
+        assertThat(timeToLive(caches.get("query.postsByCategory"))).isEqualTo(Duration.ofMillis(1500));
+        assertThat(caches.get("comments").getResourcePools()).isEqualTo(xml.getCacheConfigurations().get("comments").getResourcePools());
+        assertThat(caches.get("default-update-timestamps-region").getExpiryPolicy()).isSameAs(ExpiryPolicy.NO_EXPIRY);
+    }
+
+    @Test
+    void theCacheManagerHasEveryRegionHibernateNeeds() {
+        try (CacheManager cacheManager = SecondLevelCacheConfig.cacheManager(Duration.ofSeconds(30))){
+            assertThat(cacheManager.getCacheNames()).contains("posts", "query.postsByCategory", "default-update-timestamps-region");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Duration timeToLive(CacheConfiguration<?, ?> cache) {
+        return ((ExpiryPolicy<Object, Object>) cache.getExpiryPolicy()).getExpiryForCreation(1L, "value");
+    }
+}
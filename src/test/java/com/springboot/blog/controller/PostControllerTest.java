@@ -0,0 +1,72 @@
+package com.springboot.blog.controller;
+
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.stats.PostCounterAggregator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class PostControllerTest {
+
+    private static final byte[] JSON = "{\"id\":7}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GZIP = {31, -117, 8};
+
+    private final PostPayloadCache postPayloadCache = mock(PostPayloadCache.class);
+    private final PostController controller = new PostController(mock(PostService.class), postPayloadCache,
+            mock(PostCounterAggregator.class));
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "none", value = {
+            "none                      | false",
+            "gzip                      | true",
+            "GZip;q=0.5                | true",
+            "gzip;q=0                  | false",
+            "gzip;q=0.000, br          | false",
+            "br, x-gzip                | true",
+            "*                         | true",
+            "*;q=0, gzip               | true",
+            "gzip;q=0, *               | false",
+            "identity, deflate         | false",
+            "gzipped                   | false",
+            "gzip;q=bogus              | false"
+    })
+    void servesGzipOnlyWhenAccepted(String acceptEncoding, boolean gzip) {
+        when(postPayloadCache.get(anyString(), any(), any())).thenReturn(new PostPayloadCache.CachedPayload(3, JSON, GZIP, 0));
+
+        ResponseEntity<byte[]> response = controller.getPostById(7L, acceptEncoding);
+
+        assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip){
+            assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+            assertThat(response.getBody()).isEqualTo(GZIP);
+        } else {
+            assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+            assertThat(response.getBody()).isEqualTo(JSON);
+        }
+    }
+
+    @Test
+    void nullIdsAreABadRequest() {
+        BlogAPIException ex = catchThrowableOfType(() -> controller.getPostsByIdsInBody(Arrays.asList(1L, null)),
+                BlogAPIException.class);
+
+        assertThat(ex.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(postPayloadCache);
+    }
+}
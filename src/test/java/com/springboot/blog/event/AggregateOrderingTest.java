@@ -0,0 +1,75 @@
+package com.springboot.blog.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AggregateOrderingTest {
+
+    private static final long REORDER_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    void anEventArrivingEarlyWaitsForItsPredecessor() {
+        AggregateOrdering ordering = new AggregateOrdering(200, 100, (type, id, after, before) -> List.of());
+
+        assertThat(versions(ordering.order(List.of(event(7L, 1), event(7L, 3), event(8L, 1)), 0))).containsExactly(1L, 1L);
+        assertThat(ordering.heldUntilNanos()).isEqualTo(REORDER_NANOS);
+
+        assertThat(versions(ordering.order(List.of(event(7L, 2)), 10))).containsExactly(2L, 3L);
+        assertThat(ordering.heldUntilNanos()).isEqualTo(AggregateOrdering.NOTHING_HELD);
+    }
+
+    @Test
+    void aMissingEventIsReadFromTheOutboxOnceOverdue() {
+        AggregateOrdering ordering = new AggregateOrdering(200, 100,
+                (type, id, after, before) -> List.of(event(id, 2), event(id, 3), event(id, 4), event(id, 5)));
+
+        ordering.order(List.of(event(7L, 1)), 0);
+        assertThat(ordering.order(List.of(event(7L, 3), event(7L, 5)), 0)).isEmpty();
+
+        assertThat(versions(ordering.order(List.of(), REORDER_NANOS))).containsExactly(2L, 3L, 4L, 5L);
+        //the live delivery of a recovered event that shows up late is not repeated
+        assertThat(ordering.order(List.of(event(7L, 2)), REORDER_NANOS + 1)).isEmpty();
+        assertThat(versions(ordering.order(List.of(event(7L, 6)), REORDER_NANOS + 1))).containsExactly(6L);
+    }
+
+    @Test
+    void aShortOutboxReadKeepsTheHeldEventsAndTriesAgain() {
+        //a lagging read only has version 2 so far, 4 shows up in the outbox later
+        List<List<DomainEvent>> reads = new ArrayList<>(List.of(List.of(event(7L, 2)), List.of(event(7L, 4))));
+        AggregateOrdering ordering = new AggregateOrdering(200, 100, (type, id, after, before) -> reads.remove(0));
+
+        ordering.order(List.of(event(7L, 1)), 0);
+        assertThat(ordering.order(List.of(event(7L, 3), event(7L, 5)), 0)).isEmpty();
+
+        assertThat(versions(ordering.order(List.of(), REORDER_NANOS))).containsExactly(2L, 3L);
+        assertThat(ordering.heldUntilNanos()).isEqualTo(2 * REORDER_NANOS);
+        assertThat(versions(ordering.order(List.of(), 2 * REORDER_NANOS))).containsExactly(4L, 5L);
+    }
+
+    @Test
+    void aGapTheOutboxNeverFillsIsDeliveredAroundEventually() {
+        AggregateOrdering ordering = new AggregateOrdering(200, 100, (type, id, after, before) -> List.of());
+
+        ordering.order(List.of(event(7L, 1)), 0);
+        assertThat(ordering.order(List.of(event(7L, 3)), 0)).isEmpty();
+        assertThat(ordering.order(List.of(), REORDER_NANOS)).isEmpty();
+        assertThat(ordering.order(List.of(), 2 * REORDER_NANOS)).isEmpty();
+
+        assertThat(versions(ordering.order(List.of(), 3 * REORDER_NANOS))).containsExactly(3L);
+        assertThat(ordering.heldUntilNanos()).isEqualTo(AggregateOrdering.NOTHING_HELD);
+    }
+
+    private static List<Long> versions(List<DomainEvent> events) {
+        return events.stream().map(DomainEvent::aggregateVersion).toList();
+    }
+
+    private static DomainEvent event(long postId, long version) {
+        return new DomainEvent(version, DomainEvent.POST, postId, version, DomainEvent.COMMENT_CREATED, "{}", Instant.now());
+    }
+}
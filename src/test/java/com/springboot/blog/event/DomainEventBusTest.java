@@ -0,0 +1,47 @@
+package com.springboot.blog.event;
+
+import com.springboot.blog.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DomainEventBusTest {
+
+    private final List<DomainEvent> received = new CopyOnWriteArrayList<>();
+    private final CountDownLatch delivered = new CountDownLatch(3);
+    private final DomainEventBus bus = new DomainEventBus(List.of(events -> {
+        received.addAll(events);
+        events.forEach(event -> delivered.countDown());
+    }), mock(OutboxEventRepository.class), mock(PlatformTransactionManager.class), 64, 16, 50, 7, 5_000, 100);
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        bus.stop();
+    }
+
+    @Test
+    void eventsOfAnAggregateAreDeliveredInVersionOrder() throws InterruptedException {
+        bus.start();
+        bus.publish(event(1));
+        //let the consumer go to sleep before the next publish has to wake it
+        Thread.sleep(50);
+        bus.publish(event(3));
+        bus.publish(event(2));
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).extracting(DomainEvent::aggregateVersion).containsExactly(1L, 2L, 3L);
+    }
+
+    private static DomainEvent event(long version) {
+        return new DomainEvent(version, DomainEvent.POST, 7L, version, DomainEvent.COMMENT_CREATED, "{}", Instant.now());
+    }
+}
@@ -0,0 +1,59 @@
+package com.springboot.blog.exception;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//throw, catch and render one 404 as the exception handler does, thrown from a stack as deep as a request's.
+//The baseline is the exception as it was before: stack trace captured and message formatted in the constructor.
+//mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.openjdk.jmh.Main ExceptionCostBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionCostBenchmark {
+
+    //Tomcat, the filter chain and Spring MVC put well over a hundred frames under a service method
+    @Param({"20", "150"})
+    private int depth;
+
+    @Benchmark
+    public String stackless() {
+        try {
+            return throwAt(depth, true);
+        } catch (ResourceNotFoundException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public String withStackTrace() {
+        try {
+            return throwAt(depth, false);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String throwAt(int depth, boolean stackless) {
+        if (depth > 0){
+            return throwAt(depth - 1, stackless);
+        }
+        if (stackless){
+            throw new ResourceNotFoundException("Post", "id", 42L);
+        }
+        throw new RuntimeException(String.format("%s not found with %s: %s", "Post", "id", 42L));
+    }
+}
@@ -0,0 +1,112 @@
+package com.springboot.blog.index;
+
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.payload.PostTag;
+import com.springboot.blog.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TagIndexTest {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final CacheCoherenceManager cacheCoherenceManager = mock(CacheCoherenceManager.class);
+    private final TagIndex index = new TagIndex(postRepository, mock(PlatformTransactionManager.class), cacheCoherenceManager);
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    void aRebuildThatRacedALocalWriteIsRetriedInsteadOfApplied() {
+        when(postRepository.findAllPostTags())
+                .thenAnswer(invocation -> {
+                    //the post is re-tagged after the rows were read
+                    index.update(1L, Set.of("new"));
+                    return List.of(row(1L, "old"));
+                })
+                .thenReturn(List.of(row(1L, "new")));
+
+        index.rebuild();
+
+        assertThat(index.find(List.of("new"), true)).containsExactly(1L);
+        assertThat(index.find(List.of("old"), true)).isEmpty();
+        verify(postRepository, timeout(5_000).times(2)).findAllPostTags();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void peerChangesArrivingDuringAReadAreCoalescedIntoTheNextOne() throws Exception {
+        ArgumentCaptor<Consumer<String>> evictKey = ArgumentCaptor.forClass(Consumer.class);
+        verify(cacheCoherenceManager).registerRegion(eq(CacheCoherenceManager.POST_TAGS), evictKey.capture(), any());
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(postRepository.findPostTagsByPostIdIn(anyCollection()))
+                .thenAnswer(invocation -> {
+                    reading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return List.of(row(1L, "java"));
+                })
+                .thenReturn(List.of(row(2L, "java"), row(3L, "spring")));
+
+        evictKey.getValue().accept("1");
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        evictKey.getValue().accept("2");
+        evictKey.getValue().accept("3");
+        evictKey.getValue().accept("2");
+        release.countDown();
+
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(postRepository, timeout(5_000).times(2)).findPostTagsByPostIdIn(ids.capture());
+        assertThat(ids.getAllValues().get(1)).containsExactlyInAnyOrder(2L, 3L);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (index.find(List.of("java"), true).size() < 2 && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        assertThat(index.find(List.of("java"), true)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.find(List.of("spring"), true)).containsExactly(3L);
+    }
+
+    @Test
+    void peersAreToldOnlyAboutTagChanges() {
+        index.update(1L, Set.of("java"));
+        index.update(1L, Set.of("java"));
+        index.remove(2L);
+
+        verify(cacheCoherenceManager, times(1)).broadcast(CacheCoherenceManager.POST_TAGS, 1L);
+        verify(cacheCoherenceManager, times(0)).broadcast(CacheCoherenceManager.POST_TAGS, 2L);
+    }
+
+    private static PostTag row(long postId, String tagName) {
+        return new PostTag() {
+            @Override
+            public long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public String getTagName() {
+                return tagName;
+            }
+        };
+    }
+}
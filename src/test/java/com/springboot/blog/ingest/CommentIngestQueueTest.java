@@ -0,0 +1,191 @@
+package com.springboot.blog.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.cache.CacheCoherenceManager;
+import com.springboot.blog.cache.CompactPostStore;
+import com.springboot.blog.cache.PostPayloadCache;
+import com.springboot.blog.cache.SecondLevelCache;
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.event.DomainEventPublisher;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.stats.PostCounterAggregator;
+import com.springboot.blog.stats.TrendingPostsTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommentIngestQueueTest {
+
+    private static final String REFUSED = "refused by the database";
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PostCounterAggregator postCounterAggregator = mock(PostCounterAggregator.class);
+    private final TrendingPostsTracker trendingPostsTracker = mock(TrendingPostsTracker.class);
+    private final DomainEventPublisher domainEventPublisher = mock(DomainEventPublisher.class);
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replayedCommentsAlreadyInTheTableHaveNoSideEffects() throws Exception {
+        Path journal = directory.resolve("comments.journal");
+        JournaledComment inserted = new JournaledComment(1L, 7L, "alice", "alice@example.com", "new");
+        JournaledComment ignored = new JournaledComment(2L, 7L, "bob", "bob@example.com", "already written");
+        Files.writeString(journal, objectMapper.writeValueAsString(inserted) + "\n"
+                + objectMapper.writeValueAsString(ignored) + "\n", StandardCharsets.UTF_8);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenReturn(List.of(7L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        CommentIngestQueue queue = queue(journal);
+        queue.start();
+        queue.stop();
+
+        verify(postCounterAggregator, times(1)).commentAdded(7L);
+        verify(trendingPostsTracker, times(1)).commentAdded(7L);
+        assertThat(published(7L)).containsExactly(inserted.toDto());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aCommentTheDatabaseRefusesIsDroppedWithoutHoldingUpItsBatch() throws Exception {
+        Path journal = directory.resolve("comments.journal");
+        when(postRepository.existsById(7L)).thenReturn(true);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenReturn(List.of(7L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> insertUnlessRefused(invocation.getArgument(1)));
+
+        CommentIngestQueue queue = queue(journal);
+        queue.start();
+        CommentDto first = queue.submit(7L, comment("first comment"));
+        CommentDto refused = queue.submit(7L, comment(REFUSED));
+        CommentDto last = queue.submit(7L, comment("last comment"));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!queue.pendingComments(7L).isEmpty() && System.currentTimeMillis() < deadline){
+            Thread.sleep(20);
+        }
+        queue.stop();
+
+        assertThat(queue.pendingComments(7L)).isEmpty();
+        assertThat(queue.metrics().get("rejected")).isEqualTo(1L);
+        assertThat(published(7L)).containsExactly(first, last);
+        verify(postCounterAggregator, times(2)).commentAdded(7L);
+        //tombstoned, so a restart does not replay it
+        assertThat(new CommentJournal(journal, objectMapper, 0).recover()).extracting(JournaledComment::id)
+                .doesNotContain(refused.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void startupReplaySkipsRefusedCommentsAndNeverThrows() throws Exception {
+        Path journal = directory.resolve("comments.journal");
+        JournaledComment kept = new JournaledComment(1L, 7L, "alice", "alice@example.com", "kept comment");
+        JournaledComment refused = new JournaledComment(2L, 7L, "bob", "bob@example.com", REFUSED);
+        Files.writeString(journal, objectMapper.writeValueAsString(kept) + "\n"
+                + objectMapper.writeValueAsString(refused) + "\n", StandardCharsets.UTF_8);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenReturn(List.of(7L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> insertUnlessRefused(invocation.getArgument(1)));
+
+        CommentIngestQueue queue = queue(journal);
+        queue.start();
+        queue.stop();
+
+        assertThat(published(7L)).containsExactly(kept.toDto());
+        assertThat(queue.metrics().get("rejected")).isEqualTo(1L);
+        assertThat(Files.size(journal)).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void commentsTheDatabaseCannotTakeAtStartupStayJournaled() throws Exception {
+        Path journal = directory.resolve("comments.journal");
+        JournaledComment comment = new JournaledComment(1L, 7L, "alice", "alice@example.com", "kept comment");
+        Files.writeString(journal, objectMapper.writeValueAsString(comment) + "\n", StandardCharsets.UTF_8);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+
+        CommentIngestQueue queue = queue(journal);
+        queue.start();
+        assertThat(queue.pendingComments(7L)).extracting(CommentDto::getId).containsExactly(1L);
+        queue.stop();
+
+        assertThat(new CommentJournal(journal, objectMapper, 0).recover()).containsExactly(comment);
+    }
+
+    @Test
+    void commentsTooLongForTheTableAreRejectedBeforeTheyAreAcknowledged() throws Exception {
+        CommentIngestQueue queue = queue(directory.resolve("comments.journal"));
+        queue.start();
+        try {
+            assertThatThrownBy(() -> queue.submit(7L, comment("x".repeat(256))))
+                    .isInstanceOf(BlogAPIException.class)
+                    .extracting("status").isEqualTo(HttpStatus.BAD_REQUEST);
+        } finally {
+            queue.stop();
+        }
+    }
+
+    //the comment events of every batch written, in order
+    @SuppressWarnings("unchecked")
+    private List<Object> published(long postId) {
+        ArgumentCaptor<Map<Long, List<Object>>> events = ArgumentCaptor.forClass(Map.class);
+        verify(domainEventPublisher, atLeastOnce()).publishAll(eq(DomainEvent.POST), eq(DomainEvent.COMMENT_CREATED), events.capture());
+        return events.getAllValues().stream().flatMap(batch -> batch.getOrDefault(postId, List.of()).stream()).toList();
+    }
+
+    //like MySQL, a batch holding a refused row fails as a whole
+    private static int[] insertUnlessRefused(List<Object[]> rows) {
+        if (rows.stream().anyMatch(row -> REFUSED.equals(row[3]))){
+            throw new DataIntegrityViolationException("Data too long for column 'body'");
+        }
+        int[] inserted = new int[rows.size()];
+        Arrays.fill(inserted, 1);
+        return inserted;
+    }
+
+    private static CommentDto comment(String body) {
+        CommentDto comment = new CommentDto();
+        comment.setName("carol");
+        comment.setEmail("carol@example.com");
+        comment.setBody(body);
+        return comment;
+    }
+
+    private CommentIngestQueue queue(Path journal) {
+        return new CommentIngestQueue(true, 1, 500, 2_000, 10_000, journal.toString(), 1_048_576, "0",
+                objectMapper, postRepository, jdbcTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(PostPayloadCache.class),
+                mock(CacheCoherenceManager.class), postCounterAggregator, trendingPostsTracker, domainEventPublisher,
+                mock(CompactPostStore.class), mock(SecondLevelCache.class));
+    }
+}
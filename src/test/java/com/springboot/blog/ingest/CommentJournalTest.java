@@ -0,0 +1,49 @@
+package com.springboot.blog.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void abandonedCommentsAreNotRecovered() throws Exception {
+        Path path = directory.resolve("comments.journal");
+        CommentJournal journal = new CommentJournal(path, new ObjectMapper(), 0);
+        journal.open();
+        JournaledComment kept = new JournaledComment(1L, 7L, "alice", "alice@example.com", "kept");
+        JournaledComment abandoned = new JournaledComment(2L, 7L, "bob", "bob@example.com", "abandoned");
+        journal.append(kept).get(5, TimeUnit.SECONDS);
+        journal.append(abandoned).get(5, TimeUnit.SECONDS);
+        journal.abandon(abandoned.id());
+        journal.close();
+
+        assertThat(new CommentJournal(path, new ObjectMapper(), 0).recover()).containsExactly(kept);
+    }
+
+    @Test
+    void anAbandonedCommentDoesNotHoldBackTruncation() throws Exception {
+        Path path = directory.resolve("comments.journal");
+        CommentJournal journal = new CommentJournal(path, new ObjectMapper(), 0);
+        journal.open();
+        JournaledComment abandoned = new JournaledComment(2L, 7L, "bob", "bob@example.com", "abandoned");
+        journal.append(abandoned).get(5, TimeUnit.SECONDS);
+        journal.abandon(abandoned.id());
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.size(path) > 0 && System.currentTimeMillis() < deadline){
+            Thread.sleep(20);
+        }
+        journal.close();
+        assertThat(Files.size(path)).isZero();
+    }
+}
@@ -0,0 +1,148 @@
+package com.springboot.blog.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class CommentPartitioningTest {
+
+    @Container
+    private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.33");
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void partition() throws Exception {
+        dataSource = new DriverManagerDataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists comments");
+        jdbcTemplate.execute("drop table if exists posts");
+        //the layout Hibernate created before the tables were partitioned
+        jdbcTemplate.execute("create table posts (id bigint not null, title varchar(255), primary key (id))");
+        jdbcTemplate.execute("create table comments (id bigint not null, name varchar(255), email varchar(255), body varchar(255), " +
+                "version bigint not null, post_id bigint not null, primary key (id), key idx_comments_post_id (post_id), " +
+                "constraint fk_comments_post foreign key (post_id) references posts (id))");
+        jdbcTemplate.batchUpdate("insert into posts (id, title) values (?, ?)", List.of(new Object[]{1L, "one"}, new Object[]{2L, "two"}));
+        jdbcTemplate.update("insert into comments values (100, 'a', 'a@b.c', 'first', 0, 1)");
+
+        try (Connection connection = dataSource.getConnection()){
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/comments-partitioning.sql"));
+        }
+    }
+
+    @Test
+    void theScriptPartitionsByPostAndKeepsTheRows() {
+        assertThat(partitions()).isEqualTo(16);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from information_schema.referential_constraints " +
+                "where constraint_schema = database() and table_name = 'comments'", Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("select body from comments where id = 100", String.class)).isEqualTo("first");
+
+        Map<String, Object> plan = jdbcTemplate.queryForMap("explain select * from comments where post_id = 1");
+        assertThat(plan.get("partitions").toString()).doesNotContain(",");
+    }
+
+    @Test
+    void theIngestInsertSkipsMissingPostsAndReplays() {
+        int[] inserted = jdbcTemplate.batchUpdate(CommentIngestQueue.INSERT_SQL, List.of(
+                new Object[]{200L, "a", "a@b.c", "kept", 2L},
+                new Object[]{201L, "a", "a@b.c", "no post", 99L},
+                new Object[]{200L, "a", "a@b.c", "kept", 2L}));
+
+        assertThat(inserted).containsExactly(1, 0, 0);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from comments where id in (200, 201)", Integer.class)).isEqualTo(1);
+    }
+
+    //the statements of CommentServiceImpl.createCommentNow (findForCommentById, then the insert) racing
+    //PostServiceImpl.deletePost (findForDeleteById, the comments cascade, then the post)
+    @Test
+    void aPostDeleteWaitsForACommentBeingAddedAndRemovesIt() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection commenter = dataSource.getConnection(); Connection deleter = dataSource.getConnection()){
+            commenter.setAutoCommit(false);
+            deleter.setAutoCommit(false);
+            try (Statement statement = commenter.createStatement()){
+                assertThat(statement.executeQuery("select id from posts where id = 1 for share").next()).isTrue();
+                statement.executeUpdate("insert into comments values (400, 'a', 'a@b.c', 'racing the delete', 0, 1)");
+            }
+
+            Future<?> delete = executor.submit(() -> {
+                try (Statement statement = deleter.createStatement()){
+                    statement.executeQuery("select id from posts where id = 1 for update");
+                    statement.executeUpdate("delete from comments where post_id = 1");
+                    statement.executeUpdate("delete from posts where id = 1");
+                    deleter.commit();
+                }
+                return null;
+            });
+            Thread.sleep(500);
+            assertThat(delete.isDone()).as("the delete waits for the shared lock").isFalse();
+
+            commenter.commit();
+            delete.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from comments c left join posts p on p.id = c.post_id " +
+                "where p.id is null", Integer.class)).isZero();
+    }
+
+    @Test
+    void theToolRebalancesAndReportsOrphans() throws Exception {
+        assertThat(tool("rebalance", "4").exitCode).isZero();
+        assertThat(partitions()).isEqualTo(4);
+        assertThat(tool("check").exitCode).isZero();
+
+        //what the foreign key used to refuse
+        jdbcTemplate.update("insert into comments values (300, 'a', 'a@b.c', 'orphan', 0, 99)");
+        ToolRun check = tool("check");
+        assertThat(check.exitCode).isEqualTo(1);
+        assertThat(check.output).contains("comments without a post: 1");
+    }
+
+    private int partitions() {
+        return jdbcTemplate.queryForObject("select count(*) from information_schema.partitions " +
+                "where table_schema = database() and table_name = 'comments' and partition_name is not null", Integer.class);
+    }
+
+    //runs scripts/CommentPartitionTool.java the way an operator would, as a source file next to the driver jar
+    private static ToolRun tool(String... args) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Path driver = Path.of(Class.forName("com.mysql.cj.jdbc.Driver").getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> command = new ArrayList<>(List.of(java, "--class-path", driver.toString(), "scripts/CommentPartitionTool.java"));
+        command.addAll(List.of(args));
+
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        builder.environment().put("BLOG_DB_URL", mysql.getJdbcUrl());
+        builder.environment().put("BLOG_DB_USERNAME", mysql.getUsername());
+        builder.environment().put("BLOG_DB_PASSWORD", mysql.getPassword());
+        Process process = builder.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        return new ToolRun(process.waitFor(), output);
+    }
+
+    private record ToolRun(int exitCode, String output) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostDtoTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void idsStayNumbersAndAreRepeatedAsStrings() throws Exception {
+        long id = (1L << 59) + 1;
+        CommentDto comment = new CommentDto();
+        comment.setId(id + 1);
+        PostDto post = new PostDto();
+        post.setId(id);
+        post.setCategoryId(id + 2);
+        post.setComments(Set.of(comment));
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(post));
+
+        assertThat(json.get("id").isIntegralNumber()).isTrue();
+        assertThat(json.get("id").longValue()).isEqualTo(id);
+        assertThat(json.get("categoryId").longValue()).isEqualTo(id + 2);
+        assertThat(json.get("idString").textValue()).isEqualTo(Long.toString(id));
+        assertThat(json.get("categoryIdString").textValue()).isEqualTo(Long.toString(id + 2));
+        assertThat(json.get("comments").get(0).get("id").longValue()).isEqualTo(id + 1);
+        assertThat(json.get("comments").get(0).get("idString").textValue()).isEqualTo(Long.toString(id + 1));
+    }
+
+    @Test
+    void theStringIdsAreIgnoredOnInput() throws Exception {
+        PostDto post = objectMapper.readValue("{\"id\":5,\"idString\":\"6\",\"categoryIdString\":\"7\"}", PostDto.class);
+
+        assertThat(post.getId()).isEqualTo(5);
+        assertThat(post.getCategoryId()).isNull();
+    }
+
+    @Test
+    void stringIdsAreReadBack() throws Exception {
+        PostDto post = objectMapper.readValue("{\"id\":\"576460752303423489\",\"categoryId\":\"576460752303423491\"}", PostDto.class);
+
+        assertThat(post.getId()).isEqualTo(576460752303423489L);
+        assertThat(post.getCategoryId()).isEqualTo(576460752303423491L);
+    }
+}
@@ -0,0 +1,102 @@
+package com.springboot.blog.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenProviderTest {
+
+    private final JwtTokenProvider provider = new JwtTokenProvider();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(provider, "jwtSecret", Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded()));
+        ReflectionTestUtils.setField(provider, "jwtExpirationDate", 60_000L);
+        ReflectionTestUtils.setField(provider, "maxTokenLength", 2048);
+        ReflectionTestUtils.setField(provider, "rejectedCacheSize", 2);
+        ReflectionTestUtils.setField(provider, "rejectedCacheMillis", 300_000L);
+    }
+
+    @Test
+    void aValidTokenYieldsItsUsername() {
+        JwtValidationResult result = provider.validate(token("alice"));
+
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.username()).isEqualTo("alice");
+        assertThat(rejectedTokens()).isEmpty();
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThat(provider.validate(null)).isSameAs(JwtValidationResult.EMPTY);
+        //not three base64url segments, the parser is never asked
+        assertThat(provider.validate("not a token")).isSameAs(JwtValidationResult.MALFORMED);
+        assertThat(provider.validate("a.b.")).isSameAs(JwtValidationResult.MALFORMED);
+        assertThat(provider.validate("a".repeat(2049) + ".b.c")).isSameAs(JwtValidationResult.MALFORMED);
+        assertThat(rejectedTokens()).isEmpty();
+
+        //the right shape, but not JSON
+        assertThat(provider.validate("abc.def.ghi")).isSameAs(JwtValidationResult.MALFORMED);
+        assertThat(rejectedTokens()).containsOnlyKeys("abc.def.ghi");
+    }
+
+    @Test
+    void expiredTokensAreRejected() {
+        ReflectionTestUtils.setField(provider, "jwtExpirationDate", -1_000L);
+
+        assertThat(provider.validate(token("alice"))).isSameAs(JwtValidationResult.EXPIRED);
+    }
+
+    @Test
+    void tokensSignedWithAnotherKeyAreRejected() {
+        String forged = Jwts.builder()
+                .setSubject("alice")
+                .signWith(Keys.secretKeyFor(SignatureAlgorithm.HS256))
+                .compact();
+
+        assertThat(provider.validate(forged)).isSameAs(JwtValidationResult.BAD_SIGNATURE);
+        //the replay is answered from the rejected tokens
+        assertThat(rejectedTokens()).containsOnlyKeys(forged);
+        assertThat(provider.validate(forged)).isSameAs(JwtValidationResult.BAD_SIGNATURE);
+    }
+
+    @Test
+    void aFullRejectedCacheDropsExpiredEntriesFirst() {
+        ReflectionTestUtils.setField(provider, "rejectedCacheMillis", 0L);
+        provider.validate("expired.rejection.one");
+        ReflectionTestUtils.setField(provider, "rejectedCacheMillis", 300_000L);
+        provider.validate("live.rejection.two");
+
+        provider.validate("live.rejection.three");
+
+        assertThat(rejectedTokens()).containsOnlyKeys("live.rejection.two", "live.rejection.three");
+    }
+
+    @Test
+    void aRejectedCacheFullOfLiveEntriesStartsOver() {
+        provider.validate("live.rejection.one");
+        provider.validate("live.rejection.two");
+
+        provider.validate("live.rejection.three");
+
+        assertThat(rejectedTokens()).containsOnlyKeys("live.rejection.three");
+    }
+
+    private String token(String username) {
+        return provider.generateToken(new UsernamePasswordAuthenticationToken(username, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> rejectedTokens() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(provider, "rejectedTokens");
+    }
+}
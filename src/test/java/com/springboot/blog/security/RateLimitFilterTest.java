@@ -0,0 +1,95 @@
+package com.springboot.blog.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateLimitFilterTest {
+
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+
+    //one read per client, refilled far slower than the test runs
+    private final RateLimitFilter filter = new RateLimitFilter(new ObjectMapper(), jwtTokenProvider, true, 1000, 60_000,
+            10, 0.2, 20, 1, 1, 0.0001, 8, 100, 250);
+
+    @Test
+    void clientsBehindTheSameProxyGetTheirOwnBuckets() throws Exception {
+        assertThat(read("203.0.113.1", null)).isEqualTo(200);
+        assertThat(read("203.0.113.2", null)).isEqualTo(200);
+        assertThat(read("203.0.113.1", null)).isEqualTo(429);
+    }
+
+    @Test
+    void authenticatedClientsAreLimitedPerUser() throws Exception {
+        when(jwtTokenProvider.validate("alice-token")).thenReturn(JwtValidationResult.valid("alice"));
+        when(jwtTokenProvider.validate("bad-token")).thenReturn(JwtValidationResult.BAD_SIGNATURE);
+
+        assertThat(read("203.0.113.1", "alice-token")).isEqualTo(200);
+        //same user from another address shares the bucket
+        assertThat(read("203.0.113.9", "alice-token")).isEqualTo(429);
+        //an invalid token falls back to the client address
+        assertThat(read("203.0.113.1", "bad-token")).isEqualTo(200);
+    }
+
+    @Test
+    void validationIsHandedToTheAuthenticationFilter() throws Exception {
+        when(jwtTokenProvider.validate("alice-token")).thenReturn(JwtValidationResult.valid("alice"));
+        MockHttpServletRequest request = request("203.0.113.1", "alice-token");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(request.getAttribute(JwtAuthenticationFilter.VALIDATION_ATTRIBUTE)).isEqualTo(JwtValidationResult.valid("alice"));
+    }
+
+    @Test
+    void aFullKeySpaceIsSweptAtMostOncePerInterval() throws Exception {
+        //room for two keys, buckets refill within a millisecond so every idle one is sweepable
+        RateLimitFilter small = new RateLimitFilter(new ObjectMapper(), jwtTokenProvider, true, 2, 60_000,
+                10, 0.2, 20, 1, 1, 1000, 8, 100, 250);
+        read(small, "203.0.113.1");
+        read(small, "203.0.113.2");
+        Thread.sleep(5);
+
+        read(small, "203.0.113.3");
+        assertThat(small.bucketCount()).as("the first overflow sweeps").isEqualTo(1);
+        read(small, "203.0.113.4");
+        Thread.sleep(5);
+
+        read(small, "203.0.113.5");
+        read(small, "203.0.113.6");
+        assertThat(small.bucketCount()).as("later ones share the overflow bucket until the next sweep").isEqualTo(3);
+
+        Thread.sleep(5);
+        small.sweepIdleBuckets();
+        assertThat(small.bucketCount()).isZero();
+    }
+
+    private int read(String remoteAddr, String token) throws Exception {
+        return read(filter, remoteAddr, token);
+    }
+
+    private int read(RateLimitFilter filter, String remoteAddr) throws Exception {
+        return read(filter, remoteAddr, null);
+    }
+
+    private static int read(RateLimitFilter filter, String remoteAddr, String token) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(remoteAddr, token), response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts");
+        request.setRemoteAddr(remoteAddr);
+        if (token != null){
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+}
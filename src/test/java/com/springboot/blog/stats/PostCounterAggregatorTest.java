@@ -0,0 +1,116 @@
+package com.springboot.blog.stats;
+
+import com.springboot.blog.cache.SecondLevelCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostCounterAggregatorTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicLong flushedViews = new AtomicLong();
+    private final PostCounterAggregator aggregator = new PostCounterAggregator(jdbcTemplate, false, 1000,
+            5000, mock(SecondLevelCache.class));
+
+    @Test
+    void noViewIsLostToAConcurrentFlush() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            batch.forEach(row -> flushedViews.addAndGet((Long) row[1]));
+            return new int[batch.size()];
+        });
+        int threads = 4;
+        int viewsPerThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> viewers = new ArrayList<>();
+            for (int i = 0; i < threads; i++){
+                viewers.add(executor.submit(() -> {
+                    for (int view = 0; view < viewsPerThread; view++){
+                        aggregator.postViewed(view % 3);
+                    }
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                while (viewers.stream().anyMatch(viewer -> !viewer.isDone())){
+                    aggregator.flush();
+                }
+            });
+            for (Future<?> viewer : viewers){
+                viewer.get(30, TimeUnit.SECONDS);
+            }
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        aggregator.flush();
+
+        assertThat(flushedViews.get()).isEqualTo((long) threads * viewsPerThread);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileReadsInChunksAndGuardsEachDriftedCount() throws Exception {
+        PostCounterAggregator reconciler = new PostCounterAggregator(jdbcTemplate, false, 2, 0,
+                mock(SecondLevelCache.class));
+        holdLock(true);
+        //id, comment_count, comments in the table; the chunk size of 2 makes the last chunk short
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0L), eq(2)))
+                .thenReturn(List.of(new long[]{1, 3, 3}, new long[]{2, 5, 4}));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(2L), eq(2)))
+                .thenReturn(List.of(new long[]{3, 0, 2}));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        reconciler.reconcile();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat(
+                (List<Object[]> rows) -> rows.size() == 2
+                        && rows.get(0)[0].equals(4L) && rows.get(0)[1].equals(2L) && rows.get(0)[2].equals(5L)
+                        && rows.get(1)[0].equals(2L) && rows.get(1)[1].equals(3L) && rows.get(1)[2].equals(0L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileIsSkippedWhileAnotherNodeHoldsTheLock() throws Exception {
+        holdLock(false);
+
+        aggregator.reconcile();
+
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(), any());
+    }
+
+    private void holdLock(boolean acquired) throws Exception {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(acquired ? 1 : 0, 1);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+    }
+}
@@ -0,0 +1,69 @@
+package com.springboot.blog.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingPostsTrackerTest {
+
+    private static final long MINUTE = 60_000;
+    //a bucket boundary far from zero, so the first ranking is never served from the initial empty one
+    private static final long START = 1_000_000 * MINUTE;
+
+    //one minute buckets, a ring of four, a comment loses half its weight every bucket
+    private final TrendingPostsTracker tracker = new TrendingPostsTracker(60, 4, 1, 0);
+
+    @Test
+    void postsAreRankedByCommentsInTheCurrentBucket() {
+        record(1L, START, 1);
+        record(2L, START + 10, 3);
+        record(3L, START + 20, 2);
+
+        assertThat(tracker.topPostIds(10, START + 30)).containsExactly(2L, 3L, 1L);
+        assertThat(tracker.topPostIds(2, START + 30)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void olderCommentsWeighLess() {
+        //three comments two buckets ago are worth 0.75, three a bucket ago 1.5, one now 1.0
+        record(1L, START, 3);
+        record(2L, START + MINUTE, 3);
+        record(3L, START + 2 * MINUTE, 1);
+        assertThat(tracker.topPostIds(10, START + 2 * MINUTE)).containsExactly(2L, 3L, 1L);
+
+        //a bucket later everything halves, and a fresh comment puts post 3 at 0.5 + 1.0 ahead of post 2 at 0.75
+        record(3L, START + 3 * MINUTE, 1);
+        assertThat(tracker.topPostIds(10, START + 3 * MINUTE)).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void bucketsOlderThanTheRingAreForgotten() {
+        record(1L, START, 5);
+        assertThat(tracker.topPostIds(10, START + 3 * MINUTE)).containsExactly(1L);
+
+        //the bucket is out of the window even though its slot has not been reused yet
+        assertThat(tracker.topPostIds(10, START + 4 * MINUTE)).isEmpty();
+
+        //a comment a full lap later lands in the same slot and replaces the old bucket
+        record(2L, START + 4 * MINUTE + 10, 1);
+        assertThat(tracker.topPostIds(10, START + 4 * MINUTE + 10)).containsExactly(2L);
+    }
+
+    @Test
+    void theRankingIsReusedForTheCachePeriod() {
+        TrendingPostsTracker cached = new TrendingPostsTracker(60, 4, 1, 5_000);
+        cached.record(1L, START);
+        assertThat(cached.topPostIds(10, START)).containsExactly(1L);
+
+        cached.record(2L, START + 1_000);
+        cached.record(2L, START + 1_000);
+        assertThat(cached.topPostIds(10, START + 5_000)).containsExactly(1L);
+        assertThat(cached.topPostIds(10, START + 5_001)).containsExactly(2L, 1L);
+    }
+
+    private void record(long postId, long now, int comments) {
+        for (int i = 0; i < comments; i++){
+            tracker.record(postId, now);
+        }
+    }
+}
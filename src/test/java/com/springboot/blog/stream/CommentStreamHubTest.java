@@ -0,0 +1,134 @@
+package com.springboot.blog.stream;
+
+import com.springboot.blog.event.DomainEvent;
+import com.springboot.blog.event.DomainEventBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommentStreamHubTest {
+
+    private final DomainEventBus domainEventBus = mock(DomainEventBus.class);
+    private final CommentStreamHub hub = new CommentStreamHub(2, 32, 100, 60_000, 500, domainEventBus);
+
+    @AfterEach
+    void shutdown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void everySubscriberReceivesTheSameCommentFrame() throws Exception {
+        RecordingEmitter first = new RecordingEmitter(1);
+        RecordingEmitter second = new RecordingEmitter(1);
+        hub.register(7L, first, null);
+        hub.register(7L, second, null);
+
+        hub.onEvents(List.of(event(42L, "{\"id\":1,\"body\":\"hello\"}")));
+
+        assertThat(first.await()).isTrue();
+        assertThat(second.await()).isTrue();
+        assertThat(first.frames).hasSize(1);
+        assertThat(first.frames).isEqualTo(second.frames);
+        assertThat(first.frames.get(0)).isEqualTo("id:42\nevent:created\ndata:{\"id\":1,\"body\":\"hello\"}\n\n");
+    }
+
+    @Test
+    void everySubscriberReceivesTheSameHeartbeat() throws Exception {
+        RecordingEmitter first = new RecordingEmitter(1);
+        RecordingEmitter second = new RecordingEmitter(1);
+        hub.register(7L, first, null);
+        hub.register(8L, second, null);
+
+        hub.heartbeat();
+
+        assertThat(first.await()).isTrue();
+        assertThat(second.await()).isTrue();
+        assertThat(first.frames).isEqualTo(second.frames);
+        assertThat(first.frames.get(0)).isEqualTo(":heartbeat\n\n");
+    }
+
+    @Test
+    void aReconnectingSubscriberGetsWhatItMissedOnceAndInOrder() throws Exception {
+        when(domainEventBus.replay(DomainEvent.POST, 7L, 3L, 501)).thenReturn(List.of(event(4L, "{\"id\":4}"), event(5L, "{\"id\":5}")));
+        RecordingEmitter emitter = new RecordingEmitter(3);
+        hub.register(7L, emitter, 3L);
+
+        hub.onEvents(List.of(event(5L, "{\"id\":5}"), event(6L, "{\"id\":6}")));
+
+        assertThat(emitter.await()).isTrue();
+        assertThat(emitter.frames).extracting(frame -> frame.substring(0, frame.indexOf('\n')))
+                .containsExactly("id:4", "id:5", "id:6");
+    }
+
+    @Test
+    void aSubscriberTooFarBehindIsToldToReset() throws Exception {
+        when(domainEventBus.replay(DomainEvent.POST, 7L, 3L, 501)).thenReturn(List.of(event(9L, "{\"id\":9}")));
+        RecordingEmitter emitter = new RecordingEmitter(1);
+        hub.register(7L, emitter, 3L);
+
+        assertThat(emitter.await()).isTrue();
+        assertThat(emitter.frames.get(0)).isEqualTo("event:reset\ndata:{}\n\n");
+    }
+
+    @Test
+    void aReplayWithAHoleIsAResetToo() throws Exception {
+        when(domainEventBus.replay(DomainEvent.POST, 7L, 3L, 501)).thenReturn(List.of(event(4L, "{\"id\":4}"), event(6L, "{\"id\":6}")));
+        RecordingEmitter emitter = new RecordingEmitter(1);
+        hub.register(7L, emitter, 3L);
+
+        assertThat(emitter.await()).isTrue();
+        assertThat(emitter.frames).containsExactly("event:reset\ndata:{}\n\n");
+    }
+
+    @Test
+    void eventsAfterShutdownDropTheSubscriberInsteadOfThrowing() {
+        hub.subscribe(7L, null);
+        hub.shutdown();
+
+        hub.onEvents(List.of(event(42L, "{\"id\":1}")));
+        hub.heartbeat();
+
+        assertThat(hub.getSubscriberCount()).isZero();
+    }
+
+    private static DomainEvent event(long version, String payload) {
+        return new DomainEvent(1000 + version, DomainEvent.POST, 7L, version, DomainEvent.COMMENT_CREATED, payload, Instant.now());
+    }
+
+    //records each frame as the text the emitter would write to the response, a frame ends with a blank line
+    private static class RecordingEmitter extends EventStreamEmitter {
+
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private final CountDownLatch received;
+        private final StringBuilder frame = new StringBuilder();
+
+        RecordingEmitter(int expectedFrames) {
+            super(null);
+            this.received = new CountDownLatch(expectedFrames);
+        }
+
+        @Override
+        public synchronized void send(Object data, MediaType mediaType) {
+            frame.append(data);
+            if (frame.toString().endsWith("\n\n")){
+                frames.add(frame.toString());
+                frame.setLength(0);
+                received.countDown();
+            }
+        }
+
+        boolean await() throws InterruptedException {
+            return received.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
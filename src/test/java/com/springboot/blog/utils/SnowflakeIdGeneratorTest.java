@@ -0,0 +1,23 @@
+package com.springboot.blog.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void anUnsetNodeIdFails() {
+        assertThatThrownBy(() -> SnowflakeIdGenerator.parseNodeId("")).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("APP_NODE_ID");
+        assertThatThrownBy(() -> SnowflakeIdGenerator.parseNodeId(null)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void aConfiguredNodeIdIsUsed() {
+        assertThat(SnowflakeIdGenerator.parseNodeId(" 17 ")).isEqualTo(17);
+        long id = SnowflakeIdGenerator.forNode(17).nextId();
+        assertThat((id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(17);
+    }
+}